@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector;
+
+/**
+ * Target stream of a file which only replaces the previous file once the stream is closed.
+ * A writer giving up calls abort() instead of close(), the previous file is left untouched.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public interface AbortableOutputStream {
+
+    /**
+     * Drop the bytes written so far and close the stream, nothing is committed.
+     */
+    void abort();
+}
@@ -17,6 +17,10 @@
 
 package io.dataround.link.connector;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import io.dataround.link.common.connector.Param;
 import lombok.Getter;
 
@@ -40,4 +44,36 @@ public abstract class AbstractFileConnector implements FileConnector {
     }
 
     public abstract void doInitialize();
+
+    @Override
+    public List<String> getFiles(String dir, String filePattern, boolean recursive) {
+        return listFiles(dir, filePattern, recursive).stream().map(FileInfo::getPath).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FileInfo> listFiles(String dir, String filePattern, boolean recursive) {
+        List<FileInfo> fileList = new ArrayList<>();
+        listFiles(dir, filePattern, recursive, fileList::add);
+        return fileList;
+    }
+
+    @Override
+    public String getChecksum(String filePath, String algorithm) {
+        return null;
+    }
+
+    @Override
+    public List<String> getBlockChecksums(String filePath, long blockSize, String algorithm) {
+        return null;
+    }
+
+    @Override
+    public boolean setModifiedTime(String filePath, long modifiedTime) {
+        return false;
+    }
+
+    @Override
+    public boolean copyTo(FileConnector target, String srcPath, String targetPath) {
+        return false;
+    }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Walk a directory tree with several workers, each reading directories on its own session.
+ * <p>
+ * The directories found are pushed on one shared stack every worker takes from, a worker
+ * done with a small sub tree helps with the larger ones instead of waiting. The calling
+ * thread walks with the session of the connector, the helpers open their own sessions once
+ * there is more than one directory to read and the walk goes on with fewer workers when a
+ * helper can not open one, so a server limiting its connections does not fail the listing.
+ * The files are handed to the consumer one at a time, it does not need to be thread safe.
+ * An instance walks one tree.
+ *
+ * @param <S> session of a worker
+ * @param <D> directory to read
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class DirectoryWalker<S, D> {
+
+    /**
+     * Reads the directories of one connector.
+     */
+    public interface DirectoryReader<S, D> {
+
+        /**
+         * Open the session of a helper worker.
+         */
+        S openSession() throws Exception;
+
+        void closeSession(S session);
+
+        /**
+         * Read one directory, report its matching files and the sub directories to walk.
+         */
+        void readDirectory(S session, D dir, Consumer<FileInfo> files, Consumer<D> subDirs) throws Exception;
+    }
+
+    private final String name;
+    private final int parallelism;
+    private final DirectoryReader<S, D> reader;
+
+    // walk state, guarded by this
+    private final Deque<D> pending = new ArrayDeque<>();
+    private int active = 0;
+    private Throwable failure;
+
+    // guarded by consumerLock
+    private final Object consumerLock = new Object();
+    private Consumer<FileInfo> consumer;
+    private long count = 0L;
+
+    public DirectoryWalker(String name, int parallelism, DirectoryReader<S, D> reader) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.reader = reader;
+    }
+
+    /**
+     * Walk the tree, return once every directory is read.
+     *
+     * @param session session of the calling thread, it is not closed
+     * @return the number of files reported
+     */
+    public long walk(S session, D root, Consumer<FileInfo> consumer) throws Exception {
+        this.consumer = consumer;
+        synchronized (this) {
+            pending.push(root);
+        }
+        List<Thread> helpers = new ArrayList<>();
+        // a flat directory does not open any helper session
+        if (work(session, true)) {
+            for (int i = 1; i < parallelism; i++) {
+                Thread helper = new Thread(this::help, name + "-walker-" + i);
+                helper.setDaemon(true);
+                helper.start();
+                helpers.add(helper);
+            }
+            work(session, false);
+        }
+        try {
+            for (Thread helper : helpers) {
+                helper.join();
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+            helpers.forEach(Thread::interrupt);
+            throw e;
+        }
+        synchronized (this) {
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+        }
+        synchronized (consumerLock) {
+            return count;
+        }
+    }
+
+    /**
+     * Read the pending directories on the session until the walk is over.
+     *
+     * @param once read a single directory
+     * @return whether there are directories left to read
+     */
+    private boolean work(S session, boolean once) {
+        D dir;
+        while ((dir = take()) != null) {
+            read(session, dir);
+            if (once) {
+                synchronized (this) {
+                    return failure == null && !pending.isEmpty();
+                }
+            }
+        }
+        return false;
+    }
+
+    private void help() {
+        D dir = take();
+        if (dir == null) {
+            return;
+        }
+        S session;
+        try {
+            session = reader.openSession();
+        } catch (Exception e) {
+            log.warn("{} directory walker failed to open a session, walking with fewer workers: {}", name,
+                    e.getMessage());
+            synchronized (this) {
+                pending.push(dir);
+                active--;
+                notifyAll();
+            }
+            return;
+        }
+        try {
+            read(session, dir);
+            work(session, false);
+        } finally {
+            reader.closeSession(session);
+        }
+    }
+
+    /**
+     * Take the next directory to read, waiting while other workers may still find some.
+     *
+     * @return the directory, null once the walk is over or failed
+     */
+    private synchronized D take() {
+        while (true) {
+            if (failure != null) {
+                return null;
+            }
+            if (!pending.isEmpty()) {
+                active++;
+                return pending.pop();
+            }
+            if (active == 0) {
+                return null;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                failure = e;
+                notifyAll();
+                return null;
+            }
+        }
+    }
+
+    private void read(S session, D dir) {
+        List<FileInfo> files = new ArrayList<>();
+        List<D> subDirs = new ArrayList<>();
+        try {
+            reader.readDirectory(session, dir, files::add, subDirs::add);
+            synchronized (consumerLock) {
+                for (FileInfo file : files) {
+                    consumer.accept(file);
+                    count++;
+                }
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+        synchronized (this) {
+            // pushed in reverse, a single worker reads the tree in the order of a recursive walk
+            for (int i = subDirs.size() - 1; i >= 0; i--) {
+                pending.push(subDirs.get(i));
+            }
+            active--;
+            notifyAll();
+        }
+    }
+
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * Running checksum of a file, CRC32C is cheap enough to compute on every transfer, SHA-256
+ * is what the servers can compute on their side with sha256sum.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public abstract class FileChecksum {
+
+    public static final String CRC32C = "CRC32C";
+    public static final String SHA256 = "SHA-256";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String algorithm;
+
+    private FileChecksum(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public abstract void update(byte[] b, int off, int len);
+
+    /**
+     * Lower case hex of the checksum of the bytes so far.
+     */
+    public abstract String getValue();
+
+    /**
+     * Create a checksum of the given algorithm, CRC32C or SHA-256.
+     */
+    public static FileChecksum of(String algorithm) {
+        if (CRC32C.equalsIgnoreCase(algorithm)) {
+            CRC32C crc = new CRC32C();
+            return new FileChecksum(CRC32C) {
+                @Override
+                public void update(byte[] b, int off, int len) {
+                    crc.update(b, off, len);
+                }
+
+                @Override
+                public String getValue() {
+                    return String.format("%08x", crc.getValue());
+                }
+            };
+        }
+        if (SHA256.equalsIgnoreCase(algorithm)) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance(SHA256);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            return new FileChecksum(SHA256) {
+                @Override
+                public void update(byte[] b, int off, int len) {
+                    digest.update(b, off, len);
+                }
+
+                @Override
+                public String getValue() {
+                    try {
+                        // digest() resets the digest, keep it running on the original
+                        return HexFormat.of().formatHex(((MessageDigest) digest.clone()).digest());
+                    } catch (CloneNotSupportedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unsupported checksum algorithm: " + algorithm);
+    }
+
+    /**
+     * Checksum of the whole stream, the stream is not closed.
+     */
+    public static String compute(InputStream inputStream, String algorithm) throws IOException {
+        FileChecksum checksum = of(algorithm);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            checksum.update(buffer, 0, bytesRead);
+        }
+        return checksum.getValue();
+    }
+}
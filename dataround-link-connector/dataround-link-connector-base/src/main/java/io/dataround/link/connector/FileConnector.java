@@ -20,6 +20,7 @@ package io.dataround.link.connector;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 import io.dataround.link.common.connector.Param;
 
@@ -51,14 +52,101 @@ public interface FileConnector extends Connector {
      */
     List<String> getFiles(String dir, String filePattern, boolean recursive);
 
+    /**
+     * List files with pattern and recursive, with size and last modified time, the paths
+     * are relative to dir like getFiles
+     */
+    List<FileInfo> listFiles(String dir, String filePattern, boolean recursive);
+
+    /**
+     * List files with pattern and recursive, passing every file to the consumer as soon as it
+     * is found, so that huge trees are never held in memory. The paths are relative to dir.
+     * An exception thrown by the consumer aborts the listing.
+     */
+    void listFiles(String dir, String filePattern, boolean recursive, Consumer<FileInfo> consumer);
+
+    /**
+     * List the files and the sub directories of one directory without recursion, the paths
+     * are the names in dir and the sub directories are flagged as directory. The session is
+     * kept open for the next calls, like getFileInfo.
+     */
+    void listDirectory(String dir, Consumer<FileInfo> consumer);
+
+    /**
+     * Get file size in bytes
+     */
+    long getFileSize(String filePath);
+
+    /**
+     * Get size and last modified time of a file, null if the file does not exist
+     */
+    FileInfo getFileInfo(String filePath);
+
+    /**
+     * Checksum of a file computed where the file is, in lower case hex, see FileChecksum for
+     * the algorithms. Null if the connector can not compute it without downloading the file.
+     */
+    String getChecksum(String filePath, String algorithm);
+
+    /**
+     * Checksums of the consecutive blocks of a file computed where the file is, in lower case hex,
+     * the last block may be shorter. Null if the connector can not compute them without downloading
+     * the file.
+     */
+    List<String> getBlockChecksums(String filePath, long blockSize, String algorithm);
+
     /**
      * Read file
      */
     InputStream readFile(String filePath);
 
+    /**
+     * Read file starting from the given offset, the stream may be closed before the end of file
+     */
+    InputStream readFile(String filePath, long offset);
+
     /**
      * Write file
      */
     OutputStream writeFile(String targetPath);
 
+    /**
+     * Write file starting from the given offset, bytes before the offset are kept
+     */
+    OutputStream writeFile(String targetPath, long offset);
+
+    /**
+     * Rename a file, replacing the target if it exists. The rename is atomic where the
+     * server supports it, so that readers of the target never see a partly written file.
+     */
+    void rename(String fromPath, String toPath);
+
+    /**
+     * Set the modified time of a file, in milliseconds since the epoch.
+     *
+     * @return false if the connector can not set it
+     */
+    boolean setModifiedTime(String filePath, long modifiedTime);
+
+    /**
+     * Copy a file to the target connector without passing its bytes through this node, with a
+     * copy on the server when both connectors reach the same one, or a transfer between the two
+     * servers. The target file is replaced.
+     *
+     * @return false if the connectors can not copy files this way, the caller streams the file
+     */
+    boolean copyTo(FileConnector target, String srcPath, String targetPath);
+
+    /**
+     * Whether several writers may write different ranges of one file at the same time
+     * through writeFile(targetPath, offset)
+     */
+    boolean supportsPositionalWrite();
+
+    /**
+     * Check whether the underlying session is still usable, a connector that has not
+     * connected yet is considered valid since it connects lazily
+     */
+    boolean validate();
+
 }
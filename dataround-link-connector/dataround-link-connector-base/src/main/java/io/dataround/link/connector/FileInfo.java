@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * File Status Model
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileInfo {
+    private String path;
+    private long size;
+    // last modified time in milliseconds, 0 when the server does not report it
+    private long modifiedTime;
+    private boolean directory;
+}
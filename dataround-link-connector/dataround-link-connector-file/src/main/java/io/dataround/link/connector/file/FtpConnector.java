@@ -17,22 +17,34 @@
 
 package io.dataround.link.connector.file;
 
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.file.AccessDeniedException;
 import java.time.Duration;
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPCmd;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
 
 import io.dataround.link.common.utils.ConnectorNameConstants;
 import io.dataround.link.connector.AbstractFileConnector;
+import io.dataround.link.connector.DirectoryWalker;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -57,6 +69,14 @@ public class FtpConnector extends AbstractFileConnector {
     private Boolean binaryMode;
     private Integer timeout;
     private String encoding;
+    // connections reading directories in parallel during a recursive listing, each one logs in
+    private int listParallelism;
+    // send the file pattern of a listing without recursion to the server with LIST
+    private boolean serverGlob;
+    // whether the server supports MLSD and MLST, detected once per connection
+    private Boolean machineListing;
+    // copy files to another FTP server with fxp enabled by a transfer between the servers (FXP)
+    private boolean fxp;
 
     @Override
     public String getName() {
@@ -76,6 +96,10 @@ public class FtpConnector extends AbstractFileConnector {
         String strTimeout = config.get("timeout");
         this.timeout = strTimeout == null ? 30000 : Integer.parseInt(strTimeout);
         this.encoding = config.getOrDefault("encoding", "UTF-8");
+        String strListParallelism = config.get("listParallelism");
+        this.listParallelism = strListParallelism == null ? 1 : Integer.parseInt(strListParallelism.trim());
+        this.serverGlob = Boolean.parseBoolean(config.getOrDefault("serverGlob", "false"));
+        this.fxp = Boolean.parseBoolean(config.getOrDefault("fxp", "false"));
         // Initialize FTP client
         this.ftpClient = new FTPClient();
         // set timeout
@@ -88,8 +112,16 @@ public class FtpConnector extends AbstractFileConnector {
         if (encoding != null) {
             ftpClient.setControlEncoding(encoding);
         }
-        // set buffer size
-        ftpClient.setBufferSize(8192);
+        // set buffer size, a larger buffer and data socket buffer keep high latency links filled
+        String strBufferSize = config.get("bufferSizeKb");
+        if (strBufferSize == null) {
+            ftpClient.setBufferSize(8192);
+        } else {
+            int bufferSize = Integer.parseInt(strBufferSize.trim()) * 1024;
+            ftpClient.setBufferSize(bufferSize);
+            ftpClient.setReceieveDataSocketBufferSize(bufferSize);
+            ftpClient.setSendDataSocketBufferSize(bufferSize);
+        }
         log.debug("FTP client configuration completed");
     }
 
@@ -117,91 +149,244 @@ public class FtpConnector extends AbstractFileConnector {
     }
 
     @Override
-    public List<String> getFiles(String dir, String filePattern, boolean recursive) {
-        List<String> fileList = new ArrayList<>();
+    public void listFiles(String dir, String filePattern, boolean recursive, Consumer<FileInfo> consumer) {
         try {
             connect();
-            // get files from specified directory
-            getFilesRecursive(dir, filePattern, recursive, fileList);
-            // return relative path
-            if (dir != null && !dir.trim().isEmpty()) {
-                ftpClient.changeWorkingDirectory(dir);
+            // resolve the directory once, the files are reported relative to it
+            if (dir != null && !dir.trim().isEmpty() && !ftpClient.changeWorkingDirectory(dir)) {
+                log.warn("FTP connector change directory failed, dir: {}", dir);
+                return;
             }
-            int length = ftpClient.printWorkingDirectory().length() + 1;
-            for (int i = 0; i < fileList.size(); i++) {
-                fileList.set(i, fileList.get(i).substring(length));
+            String baseDir = ftpClient.printWorkingDirectory();
+            int length = baseDir.endsWith("/") ? baseDir.length() : baseDir.length() + 1;
+            // build file pattern filter
+            IOFileFilter fileFilter = null;
+            if (filePattern != null && !filePattern.trim().isEmpty()) {
+                fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
             }
+            // globbing is not part of MLSD, LIST takes it on most servers but the recursion needs every directory
+            String globPattern = serverGlob && !recursive && fileFilter != null ? filePattern.trim() : null;
+            long count = new DirectoryWalker<>("ftp", listParallelism,
+                    createDirectoryReader(fileFilter, globPattern, recursive, length)).walk(this, baseDir, consumer);
             log.info("FTP connector get file list, dir: {}, file count: {}, pattern: {}, recursive: {}",
-                    dir, fileList.size(), filePattern, recursive);
-        } catch (IOException e) {
+                    dir, count, filePattern, recursive);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
             log.error("FTP connector get file list failed", e);
             throw new RuntimeException("FTP connector get file list failed: " + e.getMessage(), e);
         } finally {
             disconnect();
         }
-        return fileList;
     }
 
     /**
-     * Recursively get files from FTP directory
-     * 
-     * @param dir         target directory to search
-     * @param filePattern file pattern (wildcard)
-     * @param recursive   whether to search recursively
-     * @param fileList    result list to store file names
-     * @throws IOException if FTP operation fails
+     * Reads the directories of a listing, every helper of the walk logs in with a connector
+     * of its own since an FTP control connection runs one command at a time.
      */
-    private void getFilesRecursive(String dir, String filePattern, boolean recursive,
-            List<String> fileList) throws IOException {
-        // save current working directory
-        String originalDir = ftpClient.printWorkingDirectory();
-        try {
-            // change to target directory
-            if (dir != null && !dir.trim().isEmpty()) {
-                if (!ftpClient.changeWorkingDirectory(dir)) {
-                    log.warn("FTP connector change directory failed, dir: {}", dir);
+    private DirectoryWalker.DirectoryReader<FtpConnector, String> createDirectoryReader(IOFileFilter fileFilter,
+            String globPattern, boolean recursive, int length) {
+        return new DirectoryWalker.DirectoryReader<FtpConnector, String>() {
+            @Override
+            public FtpConnector openSession() throws IOException {
+                FtpConnector connector = new FtpConnector();
+                connector.initialize(getParam());
+                connector.connect();
+                return connector;
+            }
+
+            @Override
+            public void closeSession(FtpConnector connector) {
+                connector.disconnect();
+            }
+
+            @Override
+            public void readDirectory(FtpConnector connector, String dir, Consumer<FileInfo> files,
+                    Consumer<String> subDirs) throws IOException {
+                FTPFile[] entries = connector.readEntries(dir, globPattern);
+                if (entries == null) {
                     return;
                 }
+                for (FTPFile file : entries) {
+                    if (file == null) {
+                        // a LIST line the parser did not understand
+                        continue;
+                    }
+                    // a globbing LIST may print the names with their directory
+                    String fileName = file.getName().substring(file.getName().lastIndexOf('/') + 1);
+                    // skip current and parent directory entries
+                    if (".".equals(fileName) || "..".equals(fileName)) {
+                        continue;
+                    }
+                    String fullPath = dir.endsWith("/") ? dir + fileName : dir + "/" + fileName;
+                    if (file.isFile()) {
+                        // check if file matches pattern
+                        if (fileFilter == null || fileFilter.accept(null, fileName)) {
+                            long modifiedTime = file.getTimestamp() == null ? 0L : file.getTimestamp().getTimeInMillis();
+                            files.accept(new FileInfo(fullPath.substring(length), file.getSize(), modifiedTime, false));
+                        }
+                    } else if (file.isDirectory() && recursive) {
+                        // walked by absolute path so no directory has to be restored
+                        subDirs.accept(fullPath);
+                    }
+                }
             }
-            // get file list in current directory
-            FTPFile[] files = ftpClient.listFiles();
-            // build file pattern filter
-            IOFileFilter fileFilter = null;
-            if (filePattern != null && !filePattern.trim().isEmpty()) {
-                fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
+        };
+    }
+
+    @Override
+    public void listDirectory(String dir, Consumer<FileInfo> consumer) {
+        try {
+            connect();
+            FTPFile[] entries = readEntries(dir, null);
+            if (entries == null) {
+                throw new IOException("FTP server can not list directory " + dir + ", reply: "
+                        + ftpClient.getReplyString());
             }
-            String currentWorkingDir = ftpClient.printWorkingDirectory();
-            // process files and directories
-            for (FTPFile file : files) {
-                String fileName = file.getName();
-                // skip current and parent directory entries
-                if (".".equals(fileName) || "..".equals(fileName)) {
+            for (FTPFile file : entries) {
+                if (file == null || ".".equals(file.getName()) || "..".equals(file.getName())) {
                     continue;
                 }
-                String fullPath = currentWorkingDir.endsWith("/") ? currentWorkingDir + fileName : currentWorkingDir + "/" + fileName;
-                if (file.isFile()) {
-                    // check if file matches pattern
-                    if (fileFilter == null || fileFilter.accept(null, fileName)) {
-                        fileList.add(fullPath);
-                    }
-                } else if (file.isDirectory() && recursive) {
-                    // recursively search subdirectories
-                    getFilesRecursive(fullPath, filePattern, recursive, fileList);
+                if (file.isFile() || file.isDirectory()) {
+                    long modifiedTime = file.getTimestamp() == null ? 0L : file.getTimestamp().getTimeInMillis();
+                    consumer.accept(new FileInfo(file.getName(), file.getSize(), modifiedTime, file.isDirectory()));
                 }
             }
-        } finally {
-            // restore original working directory
-            if (originalDir != null) {
-                ftpClient.changeWorkingDirectory(originalDir);
+        } catch (IOException e) {
+            log.error("FTP connector list directory failed", e);
+            throw new RuntimeException("FTP connector list directory failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Entries of one directory, null if it can not be listed.
+     *
+     * @param globPattern file name pattern sent to the server with LIST, null for all the entries
+     */
+    private FTPFile[] readEntries(String dir, String globPattern) throws IOException {
+        if (globPattern == null && supportsMachineListing()) {
+            // MLSD by absolute path, exact sizes, UTC timestamps and types in one command
+            FTPFile[] entries = ftpClient.mlistDir(dir);
+            int replyCode = ftpClient.getReplyCode();
+            if (FTPReply.isPositiveCompletion(replyCode)) {
+                return entries;
+            }
+            if (!isNotImplemented(replyCode)) {
+                log.warn("FTP connector list directory failed, dir: {}, reply: {}", dir, ftpClient.getReplyString());
+                return null;
             }
+            // advertised by FEAT but refused, LIST is used for the rest of the connection
+            log.info("FTP server refused MLSD, falling back to LIST, reply: {}", ftpClient.getReplyString());
+            machineListing = false;
+        }
+        // old servers may not take a path with LIST, list the working directory instead
+        if (!ftpClient.changeWorkingDirectory(dir)) {
+            log.warn("FTP connector change directory failed, dir: {}", dir);
+            return null;
+        }
+        if (globPattern != null) {
+            FTPFile[] entries = ftpClient.listFiles(globPattern);
+            if (FTPReply.isPositiveCompletion(ftpClient.getReplyCode())) {
+                return entries;
+            }
+            // the server took the pattern for a file name, the entries are filtered by the reader
+            log.info("FTP server can not glob {}, listing the whole directory, reply: {}", globPattern,
+                    ftpClient.getReplyString());
+        }
+        return ftpClient.listFiles();
+    }
+
+    private static boolean isNotImplemented(int replyCode) {
+        return replyCode == FTPReply.UNRECOGNIZED_COMMAND || replyCode == FTPReply.COMMAND_NOT_IMPLEMENTED
+                || replyCode == FTPReply.COMMAND_NOT_IMPLEMENTED_FOR_PARAMETER;
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        try {
+            connect();
+            String size = ftpClient.getSize(filePath);
+            if (size != null) {
+                return Long.parseLong(size.trim());
+            }
+            // SIZE is not supported by the server, fall back to MLST
+            FTPFile file = ftpClient.mlistFile(filePath);
+            if (file == null) {
+                throw refused("FTP server can not get size of file " + filePath, ftpClient);
+            }
+            return file.getSize();
+        } catch (IOException e) {
+            log.error("FTP connector get file size failed", e);
+            throw new RuntimeException("FTP connector get file size failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public FileInfo getFileInfo(String filePath) {
+        try {
+            connect();
+            FTPFile file = supportsMachineListing() ? ftpClient.mlistFile(filePath) : null;
+            if (file != null) {
+                long modifiedTime = file.getTimestamp() == null ? 0L : file.getTimestamp().getTimeInMillis();
+                return new FileInfo(filePath, file.getSize(), modifiedTime, file.isDirectory());
+            }
+            // MLST is not supported by the server, fall back to SIZE and MDTM
+            String size = ftpClient.getSize(filePath);
+            if (size == null) {
+                return null;
+            }
+            Instant modifiedTime = ftpClient.mdtmInstant(filePath);
+            return new FileInfo(filePath, Long.parseLong(size.trim()),
+                    modifiedTime == null ? 0L : modifiedTime.toEpochMilli(), false);
+        } catch (IOException e) {
+            log.error("FTP connector get file info failed", e);
+            throw new RuntimeException("FTP connector get file info failed: " + e.getMessage(), e);
         }
     }
 
     @Override
     public InputStream readFile(String filePath) {
+        return readFile(filePath, 0L);
+    }
+
+    @Override
+    public InputStream readFile(String filePath, long offset) {
         try {
             connect();
-            return ftpClient.retrieveFileStream(filePath);
+            // REST before RETR, the server starts sending from the offset
+            ftpClient.setRestartOffset(offset);
+            InputStream inputStream = ftpClient.retrieveFileStream(filePath);
+            if (inputStream == null) {
+                throw refused("FTP server refused to send file " + filePath, ftpClient);
+            }
+            return new FilterInputStream(inputStream) {
+                private boolean eof = false;
+
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    eof = b == -1;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    eof = n == -1;
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    if (eof) {
+                        completeTransfer();
+                    } else {
+                        // closed before the end of file (ranged read), the server reports the aborted transfer
+                        ftpClient.completePendingCommand();
+                    }
+                }
+            };
         } catch (IOException e) {
             log.error("FTP connector read file failed", e);
             throw new RuntimeException("FTP connector read file failed: " + e.getMessage(), e);
@@ -212,13 +397,183 @@ public class FtpConnector extends AbstractFileConnector {
     public OutputStream writeFile(String targetPath) {
         try {
             connect();
-            return ftpClient.appendFileStream(targetPath);
+            // STOR replaces the target, a rerun must not append to the previous copy
+            return wrapOutputStream(ftpClient.storeFileStream(targetPath), targetPath);
         } catch (IOException e) {
             log.error("FTP connector write file failed", e);
             throw new RuntimeException("FTP connector write file failed: " + e.getMessage(), e);
         }  
     }
 
+    @Override
+    public OutputStream writeFile(String targetPath, long offset) {
+        try {
+            connect();
+            // REST before STOR, the server keeps the bytes before the offset
+            ftpClient.setRestartOffset(offset);
+            return wrapOutputStream(ftpClient.storeFileStream(targetPath), targetPath);
+        } catch (IOException e) {
+            log.error("FTP connector write file failed", e);
+            throw new RuntimeException("FTP connector write file failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void rename(String fromPath, String toPath) {
+        try {
+            connect();
+            // RNFR and RNTO, unix servers replace the target like rename(2)
+            if (ftpClient.rename(fromPath, toPath)) {
+                return;
+            }
+            // servers refusing to overwrite need the previous target removed first
+            if (ftpClient.deleteFile(toPath) && ftpClient.rename(fromPath, toPath)) {
+                return;
+            }
+            throw new IOException("FTP server refused to rename file " + fromPath + " to " + toPath
+                    + ", reply: " + ftpClient.getReplyString());
+        } catch (IOException e) {
+            log.error("FTP connector rename file failed", e);
+            throw new RuntimeException("FTP connector rename file failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean copyTo(FileConnector target, String srcPath, String targetPath) {
+        // the servers connect to each other, most refuse a data connection with a foreign address
+        // unless configured for it, so both connections must allow it
+        if (!fxp || !(target instanceof FtpConnector) || !((FtpConnector) target).fxp) {
+            return false;
+        }
+        FtpConnector ftpTarget = (FtpConnector) target;
+        FTPClient targetClient = ftpTarget.ftpClient;
+        try {
+            connect();
+            ftpTarget.connect();
+            // the target listens with PASV, the source is told with PORT to send the file there
+            if (!targetClient.enterRemotePassiveMode()) {
+                log.warn("FTP server {} refused PASV for a server to server transfer, files are streamed: {}",
+                        ftpTarget.host, targetClient.getReplyString());
+                fxp = false;
+                return false;
+            }
+            InetAddress address = InetAddress.getByName(targetClient.getPassiveHost());
+            if (!ftpClient.enterRemoteActiveMode(address, targetClient.getPassivePort())) {
+                log.warn("FTP server {} refused PORT to {} for a server to server transfer, files are streamed: {}",
+                        host, address.getHostAddress(), ftpClient.getReplyString());
+                fxp = false;
+                return false;
+            }
+            if (!targetClient.remoteStore(targetPath)) {
+                throw refused("FTP server refused to store file " + targetPath, targetClient);
+            }
+            if (!ftpClient.remoteRetrieve(srcPath)) {
+                String reply = ftpClient.getReplyString();
+                targetClient.abort();
+                throw new IOException("FTP server refused to send file " + srcPath + ", reply: " + reply);
+            }
+            // the replies only come once the whole file is sent, whatever its size
+            ftpClient.setSoTimeout(0);
+            targetClient.setSoTimeout(0);
+            boolean sent = ftpClient.completePendingCommand();
+            boolean stored = targetClient.completePendingCommand();
+            if (!sent || !stored) {
+                throw new IOException("FTP server to server transfer of file " + srcPath + " failed, replies: "
+                        + ftpClient.getReplyString() + ", " + targetClient.getReplyString());
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("FTP connector copy file failed", e);
+            throw new RuntimeException("FTP connector copy file failed: " + e.getMessage(), e);
+        } finally {
+            // the next transfers of both connections go through this node again
+            restoreDataConnection();
+            ftpTarget.restoreDataConnection();
+        }
+    }
+
+    /**
+     * Back to the data connection mode and timeout of the connection after a server to server transfer.
+     */
+    private void restoreDataConnection() {
+        if (passiveMode) {
+            ftpClient.enterLocalPassiveMode();
+        } else {
+            ftpClient.enterLocalActiveMode();
+        }
+        if (timeout != null && ftpClient.isConnected()) {
+            try {
+                ftpClient.setSoTimeout(timeout);
+            } catch (SocketException e) {
+                log.debug("FTP connector failed to restore the timeout", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsPositionalWrite() {
+        // most servers truncate the file at the restart offset of STOR
+        return false;
+    }
+
+    @Override
+    public boolean validate() {
+        if (!connected) {
+            return true;
+        }
+        try {
+            return ftpClient.isConnected() && ftpClient.sendNoOp();
+        } catch (IOException e) {
+            log.debug("FTP connector validate failed, host: {}, port: {}", host, port, e);
+            return false;
+        }
+    }
+
+    private OutputStream wrapOutputStream(OutputStream outputStream, String targetPath) throws IOException {
+        if (outputStream == null) {
+            throw refused("FTP server refused to store file " + targetPath, ftpClient);
+        }
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                completeTransfer();
+            }
+        };
+    }
+
+    /**
+     * A command refused by the server as an IOException telling whether a retry may help, a file
+     * the server does not have is a FileNotFoundException, a denied name or login an AccessDeniedException.
+     */
+    private static IOException refused(String message, FTPClient client) {
+        String reason = message + ", reply: " + client.getReplyString();
+        switch (client.getReplyCode()) {
+            case FTPReply.FILE_UNAVAILABLE:
+                return new FileNotFoundException(reason);
+            case FTPReply.NOT_LOGGED_IN:
+            case FTPReply.FILE_NAME_NOT_ALLOWED:
+                return new AccessDeniedException(null, null, reason);
+            default:
+                return new IOException(reason);
+        }
+    }
+
+    /**
+     * Finish the data transfer of the last stream, the control connection can not
+     * be used for the next command until the server confirms the transfer
+     */
+    private void completeTransfer() throws IOException {
+        if (!ftpClient.completePendingCommand()) {
+            throw new IOException("FTP transfer not completed, reply: " + ftpClient.getReplyString());
+        }
+    }
+
     @Override
     public void close() throws Exception {
         disconnect();
@@ -232,6 +587,7 @@ public class FtpConnector extends AbstractFileConnector {
             return;
         }        // connect to server
         ftpClient.connect(host, port);
+        machineListing = null;
         // check connection response
         int replyCode = ftpClient.getReplyCode();
         if (!org.apache.commons.net.ftp.FTPReply.isPositiveCompletion(replyCode)) {
@@ -272,6 +628,17 @@ public class FtpConnector extends AbstractFileConnector {
         log.debug("FTP server connection established, host: {}, port: {}", host, port);
     }
 
+    /**
+     * Whether the server lists directories with MLSD, FEAT advertises it as MLST.
+     */
+    private boolean supportsMachineListing() throws IOException {
+        if (machineListing == null) {
+            machineListing = ftpClient.hasFeature(FTPCmd.MLST) || ftpClient.hasFeature(FTPCmd.MLSD);
+            log.debug("FTP server machine listing support: {}", machineListing);
+        }
+        return machineListing;
+    }
+
     /**
      * Disconnect from FTP server
      */
@@ -18,23 +18,42 @@
 
 package io.dataround.link.connector.file;
 
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Collection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
 import io.dataround.link.common.utils.ConnectorNameConstants;
 import io.dataround.link.connector.AbstractFileConnector;
+import io.dataround.link.connector.DirectoryWalker;
+import io.dataround.link.connector.FileChecksum;
+import io.dataround.link.connector.FileInfo;
 
 /**
  * Local file connector
@@ -45,6 +64,9 @@ import io.dataround.link.connector.AbstractFileConnector;
  */
 public class LocalFileConnector extends AbstractFileConnector {
 
+    // directories read in parallel by a recursive listing, worth it on network file systems
+    private int listParallelism = 1;
+
     @Override
     public String getName() {
         return ConnectorNameConstants.LOCAL_FILE;
@@ -52,6 +74,11 @@ public class LocalFileConnector extends AbstractFileConnector {
 
     @Override
     public void doInitialize() {
+        Map<String, String> config = getParam().getConfig();
+        String strListParallelism = config == null ? null : config.get("listParallelism");
+        if (strListParallelism != null) {
+            this.listParallelism = Integer.parseInt(strListParallelism.trim());
+        }
     }
 
     @Override
@@ -70,25 +97,164 @@ public class LocalFileConnector extends AbstractFileConnector {
     }
 
     @Override
-    public List<String> getFiles(String dir, String filePattern, boolean recursive) {
+    public void listFiles(String dir, String filePattern, boolean recursive, Consumer<FileInfo> consumer) {
+        Path basePath = Paths.get(dir);
+        if (!Files.isDirectory(basePath)) {
+            throw new IllegalArgumentException("Directory does not exist or is not a directory: " + dir);
+        }
+        // use wildcard filter to match file pattern
+        IOFileFilter fileFilter = filePattern != null && !filePattern.isEmpty()
+                ? WildcardFileFilter.builder().setWildcards(filePattern).get() : null;
+        if (recursive && listParallelism > 1) {
+            walkParallel(basePath, fileFilter, consumer);
+            return;
+        }
         try {
-            File directory = new File(dir);
-            if (!directory.exists() || !directory.isDirectory()) {
-                throw new IllegalArgumentException("Directory does not exist or is not a directory: " + dir);
+            // walk the tree lazily instead of collecting it like FileUtils.listFiles
+            Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), recursive ? Integer.MAX_VALUE : 1,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            String fileName = file.getFileName().toString();
+                            if (attrs.isRegularFile() && (fileFilter == null || fileFilter.accept(null, fileName))) {
+                                // return relative path, the same as the remote file connectors
+                                consumer.accept(new FileInfo(basePath.relativize(file).toString(), attrs.size(),
+                                        attrs.lastModifiedTime().toMillis(), false));
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                            // a symbolic link pointing to one of its parents
+                            if (exc instanceof FileSystemLoopException) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                            throw exc;
+                        }
+                    });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list files in directory: " + dir, e);
+        }
+    }
+
+    @Override
+    public void listDirectory(String dir, Consumer<FileInfo> consumer) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(dir))) {
+            for (Path entry : stream) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attrs.isRegularFile() || attrs.isDirectory()) {
+                    consumer.accept(new FileInfo(entry.getFileName().toString(), attrs.size(),
+                            attrs.lastModifiedTime().toMillis(), attrs.isDirectory()));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list directory: " + dir, e);
+        }
+    }
+
+    private void walkParallel(Path basePath, IOFileFilter fileFilter, Consumer<FileInfo> consumer) {
+        DirectoryWalker.DirectoryReader<Void, LocalDir> reader = new DirectoryWalker.DirectoryReader<Void, LocalDir>() {
+            @Override
+            public Void openSession() {
+                return null;
+            }
+
+            @Override
+            public void closeSession(Void session) {
             }
-            Collection<File> files;
-            if (filePattern != null && !filePattern.isEmpty()) {
-                // use wildcard filter to match file pattern
-                IOFileFilter fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
-                IOFileFilter dirFilter = recursive ? TrueFileFilter.INSTANCE : null;
-                files = FileUtils.listFiles(directory, fileFilter, dirFilter);
-            } else {
-                // get all files
-                files = FileUtils.listFiles(directory, null, recursive);
+
+            @Override
+            public void readDirectory(Void session, LocalDir dir, Consumer<FileInfo> files, Consumer<LocalDir> subDirs)
+                    throws IOException {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.path)) {
+                    for (Path entry : stream) {
+                        BasicFileAttributes attrs;
+                        try {
+                            attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                        } catch (NoSuchFileException e) {
+                            // a broken link, or a file deleted since the directory was read
+                            continue;
+                        }
+                        String fileName = entry.getFileName().toString();
+                        if (attrs.isRegularFile() && (fileFilter == null || fileFilter.accept(null, fileName))) {
+                            files.accept(new FileInfo(basePath.relativize(entry).toString(), attrs.size(),
+                                    attrs.lastModifiedTime().toMillis(), false));
+                        } else if (attrs.isDirectory()) {
+                            Object key = getDirectoryKey(entry, attrs);
+                            // a symbolic link pointing to one of its parents, as skipped by walkFileTree
+                            if (!dir.ancestorKeys.contains(key)) {
+                                subDirs.accept(new LocalDir(entry, dir.ancestorKeys, key));
+                            }
+                        }
+                    }
+                }
             }
-            return files.stream().map(File::getAbsolutePath).collect(Collectors.toList());
+        };
+        try {
+            LocalDir root = new LocalDir(basePath, new ArrayList<>(),
+                    getDirectoryKey(basePath, Files.readAttributes(basePath, BasicFileAttributes.class)));
+            new DirectoryWalker<>("local", listParallelism, reader).walk(null, root, consumer);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Failed to list files in directory: " + dir, e);
+            throw new RuntimeException("Failed to list files in directory: " + basePath, e);
+        }
+    }
+
+    private static Object getDirectoryKey(Path dir, BasicFileAttributes attrs) throws IOException {
+        // the file key is not available on every platform, the real path identifies the directory too
+        return attrs.fileKey() != null ? attrs.fileKey() : dir.toRealPath();
+    }
+
+    /**
+     * Directory of a parallel walk with the keys of the directories above it, to detect loops.
+     */
+    private static class LocalDir {
+        private final Path path;
+        private final List<Object> ancestorKeys;
+
+        LocalDir(Path path, List<Object> parentKeys, Object key) {
+            this.path = path;
+            this.ancestorKeys = new ArrayList<>(parentKeys);
+            this.ancestorKeys.add(key);
+        }
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to get file size: " + filePath, e);
+        }
+    }
+
+    @Override
+    public FileInfo getFileInfo(String filePath) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+            return new FileInfo(filePath, attrs.size(), attrs.lastModifiedTime().toMillis(), attrs.isDirectory());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to get file info: " + filePath, e);
+        }
+    }
+
+    @Override
+    public String getChecksum(String filePath, String algorithm) {
+        try (InputStream inputStream = Files.newInputStream(Paths.get(filePath))) {
+            return FileChecksum.compute(inputStream, algorithm);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compute checksum of file: " + filePath, e);
         }
     }
 
@@ -101,6 +267,17 @@ public class LocalFileConnector extends AbstractFileConnector {
         }
     }
 
+    @Override
+    public InputStream readFile(String filePath, long offset) {
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file: " + filePath, e);
+        }
+    }
+
     @Override
     public OutputStream writeFile(String targetPath) {
         try {
@@ -110,6 +287,55 @@ public class LocalFileConnector extends AbstractFileConnector {
         }
     }
 
+    @Override
+    public OutputStream writeFile(String targetPath, long offset) {
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(targetPath), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            channel.position(offset);
+            return Channels.newOutputStream(channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write file: " + targetPath, e);
+        }
+    }
+
+    @Override
+    public void rename(String fromPath, String toPath) {
+        Path source = Paths.get(fromPath);
+        Path target = Paths.get(toPath);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // another file system, the file is copied
+            try {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to rename file: " + fromPath + " -> " + toPath, ex);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rename file: " + fromPath + " -> " + toPath, e);
+        }
+    }
+
+    @Override
+    public boolean setModifiedTime(String filePath, long modifiedTime) {
+        try {
+            Files.setLastModifiedTime(Paths.get(filePath), FileTime.fromMillis(modifiedTime));
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to set modified time of file: " + filePath, e);
+        }
+    }
+
+    @Override
+    public boolean supportsPositionalWrite() {
+        return true;
+    }
+
+    @Override
+    public boolean validate() {
+        return true;
+    }
+
     @Override
     public void close() throws Exception {
         // do nothing
@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector.file;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.AccessDeniedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.AbstractFileConnector;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * S3 connector
+ * Objects of one bucket of S3 or of an S3 compatible storage seen as files, the path of a file
+ * is the key of its object. Objects are written with parallel multipart uploads and large
+ * objects are read with parallel ranged GETs.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class S3Connector extends AbstractFileConnector {
+
+    private static final long MB = 1024L * 1024L;
+    private static final String DEFAULT_REGION = "us-east-1";
+    // part uploads and ranged reads of all the connectors, each stream bounds its own concurrency
+    private static final ExecutorService TRANSFER_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "s3-transfer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private S3Client s3Client;
+
+    // S3 connection parameters
+    private String endpoint;
+    private String accessKey;
+    private String secretKey;
+    private String bucket;
+    private String region;
+    private boolean pathStyleAccess;
+    private Integer timeout;
+    // transfer tuning, see the config items of doInitialize
+    private long partSize;
+    private int uploadConcurrency;
+    private int downloadConcurrency;
+    private long rangeThreshold;
+
+    @Override
+    public String getName() {
+        return ConnectorNameConstants.S3;
+    }
+
+    @Override
+    public void doInitialize() {
+        Map<String, String> config = getParam().getConfig();
+        this.endpoint = config.get("endpoint");
+        this.accessKey = config.get("accessKey");
+        this.secretKey = config.get("secretKey");
+        this.bucket = config.get("bucket");
+        String strRegion = config.get("region");
+        this.region = strRegion == null || strRegion.trim().isEmpty() ? DEFAULT_REGION : strRegion.trim();
+        this.pathStyleAccess = Boolean.parseBoolean(config.get("pathStyleAccess"));
+        String strTimeout = config.get("timeout");
+        this.timeout = strTimeout == null ? 30000 : Integer.parseInt(strTimeout);
+        // the part size is also the size of the ranged reads, S3 accepts at most 10000 parts of at least 5 MB
+        this.partSize = Math.max(S3MultipartOutputStream.MIN_PART_SIZE, getInt(config, "partSizeMb", 8) * MB);
+        this.uploadConcurrency = Math.max(1, getInt(config, "uploadConcurrency", 4));
+        this.downloadConcurrency = Math.max(1, getInt(config, "downloadConcurrency", 4));
+        // smaller objects are read with one GET
+        this.rangeThreshold = getInt(config, "rangeThresholdMb", 32) * MB;
+        int maxConnections = Math.max(getInt(config, "maxConnections", 50), uploadConcurrency + downloadConcurrency);
+
+        AwsCredentialsProvider credentialsProvider;
+        if (accessKey == null || accessKey.trim().isEmpty()) {
+            // environment, profile or instance role
+            credentialsProvider = DefaultCredentialsProvider.create();
+        } else {
+            credentialsProvider = StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        }
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider)
+                .forcePathStyle(pathStyleAccess)
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(timeout))
+                        .socketTimeout(Duration.ofMillis(timeout)));
+        if (endpoint != null && !endpoint.trim().isEmpty()) {
+            String url = endpoint.trim();
+            builder.endpointOverride(URI.create(url.contains("://") ? url : "https://" + url));
+        }
+        this.s3Client = builder.build();
+        log.debug("S3 client configuration completed");
+    }
+
+    private static int getInt(Map<String, String> config, String key, int defaultValue) {
+        String value = config.get(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public boolean testConnectivity() {
+        try {
+            s3Client.headBucket(request -> request.bucket(bucket));
+            return true;
+        } catch (Exception e) {
+            log.error("S3 connector test connection failed to {}, bucket: {}", endpoint, bucket, e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> getFiles(String dir) {
+        return getFiles(dir, null);
+    }
+
+    @Override
+    public List<String> getFiles(String dir, String filePattern) {
+        return getFiles(dir, filePattern, false);
+    }
+
+    @Override
+    public void listFiles(String dir, String filePattern, boolean recursive, Consumer<FileInfo> consumer) {
+        try {
+            String prefix = toPrefix(dir);
+            IOFileFilter fileFilter = null;
+            if (filePattern != null && !filePattern.trim().isEmpty()) {
+                fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
+            }
+            ListObjectsV2Request.Builder request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix);
+            if (!recursive) {
+                // the objects of the sub directories are grouped into common prefixes
+                request.delimiter("/");
+            }
+            long count = 0L;
+            // the next page is only requested once the objects of the current one are consumed
+            for (S3Object object : s3Client.listObjectsV2Paginator(request.build()).contents()) {
+                String path = object.key().substring(prefix.length());
+                if (path.isEmpty() || path.endsWith("/")) {
+                    // directory marker
+                    continue;
+                }
+                String fileName = path.substring(path.lastIndexOf('/') + 1);
+                if (fileFilter == null || fileFilter.accept(null, fileName)) {
+                    long modifiedTime = object.lastModified() == null ? 0L : object.lastModified().toEpochMilli();
+                    consumer.accept(new FileInfo(path, object.size(), modifiedTime, false));
+                    count++;
+                }
+            }
+            log.info("S3 connector get file list, dir: {}, file count: {}, pattern: {}, recursive: {}",
+                    dir, count, filePattern, recursive);
+        } catch (Exception e) {
+            log.error("S3 connector get file list failed", e);
+            throw new RuntimeException("S3 connector get file list failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public void listDirectory(String dir, Consumer<FileInfo> consumer) {
+        try {
+            String prefix = toPrefix(dir);
+            ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).delimiter("/")
+                    .build();
+            for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+                for (S3Object object : page.contents()) {
+                    String name = object.key().substring(prefix.length());
+                    if (!name.isEmpty()) {
+                        long modifiedTime = object.lastModified() == null ? 0L : object.lastModified().toEpochMilli();
+                        consumer.accept(new FileInfo(name, object.size(), modifiedTime, false));
+                    }
+                }
+                // prefixes have no modified time
+                for (CommonPrefix commonPrefix : page.commonPrefixes()) {
+                    String name = commonPrefix.prefix().substring(prefix.length());
+                    consumer.accept(new FileInfo(name.substring(0, name.length() - 1), 0L, 0L, true));
+                }
+            }
+        } catch (Exception e) {
+            log.error("S3 connector list directory failed", e);
+            throw new RuntimeException("S3 connector list directory failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        FileInfo fileInfo = getFileInfo(filePath);
+        if (fileInfo == null) {
+            throw new RuntimeException("S3 connector get file size failed: no object " + toKey(filePath));
+        }
+        return fileInfo.getSize();
+    }
+
+    @Override
+    public FileInfo getFileInfo(String filePath) {
+        try {
+            HeadObjectResponse response = s3Client.headObject(request -> request.bucket(bucket).key(toKey(filePath)));
+            long modifiedTime = response.lastModified() == null ? 0L : response.lastModified().toEpochMilli();
+            return new FileInfo(filePath, response.contentLength(), modifiedTime, false);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            log.error("S3 connector get file info failed", e);
+            throw new RuntimeException("S3 connector get file info failed: " + e.getMessage(), toCause(e));
+        } catch (Exception e) {
+            log.error("S3 connector get file info failed", e);
+            throw new RuntimeException("S3 connector get file info failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public InputStream readFile(String filePath) {
+        try {
+            String key = toKey(filePath);
+            if (downloadConcurrency > 1) {
+                HeadObjectResponse response = s3Client.headObject(request -> request.bucket(bucket).key(key));
+                if (response.contentLength() >= rangeThreshold) {
+                    return new S3RangedInputStream(s3Client, TRANSFER_EXECUTOR, bucket, key, response.eTag(),
+                            response.contentLength(), partSize, downloadConcurrency);
+                }
+            }
+            return getObject(key, 0L);
+        } catch (Exception e) {
+            log.error("S3 connector read file failed", e);
+            throw new RuntimeException("S3 connector read file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public InputStream readFile(String filePath, long offset) {
+        if (offset == 0L) {
+            return readFile(filePath);
+        }
+        try {
+            // one ranged GET, the chunked transfers already read the ranges of a file in parallel
+            return getObject(toKey(filePath), offset);
+        } catch (Exception e) {
+            log.error("S3 connector read file failed", e);
+            throw new RuntimeException("S3 connector read file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    private InputStream getObject(String key, long offset) {
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(key);
+        if (offset > 0) {
+            request.range("bytes=" + offset + "-");
+        }
+        ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(request.build());
+        return new FilterInputStream(inputStream) {
+            private boolean eof = false;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                eof = b == -1;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                eof = n == -1;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!eof) {
+                    // closed before the end of the object, drop the connection instead of reading the rest
+                    inputStream.abort();
+                }
+                super.close();
+            }
+        };
+    }
+
+    @Override
+    public OutputStream writeFile(String targetPath) {
+        return writeFile(targetPath, 0L);
+    }
+
+    @Override
+    public OutputStream writeFile(String targetPath, long offset) {
+        try {
+            // objects can not be appended, the bytes before the offset are copied from the current object
+            return new S3MultipartOutputStream(s3Client, TRANSFER_EXECUTOR, bucket, toKey(targetPath), partSize,
+                    uploadConcurrency, offset);
+        } catch (Exception e) {
+            log.error("S3 connector write file failed", e);
+            throw new RuntimeException("S3 connector write file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public boolean supportsPositionalWrite() {
+        // an object is only visible once complete, its parts can not be written by several streams
+        return false;
+    }
+
+    @Override
+    public void rename(String fromPath, String toPath) {
+        try {
+            // objects are created atomically, the copy of the new key replaces the previous object at once
+            String fromKey = toKey(fromPath);
+            HeadObjectResponse response = s3Client.headObject(request -> request.bucket(bucket).key(fromKey));
+            S3MultipartOutputStream.copyObject(s3Client, bucket, fromKey, bucket, toKey(toPath),
+                    response.contentLength());
+            s3Client.deleteObject(request -> request.bucket(bucket).key(fromKey));
+        } catch (Exception e) {
+            log.error("S3 connector rename file failed", e);
+            throw new RuntimeException("S3 connector rename file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public boolean copyTo(FileConnector target, String srcPath, String targetPath) {
+        // the client of this connector copies between its buckets, the target has to be the same
+        // storage reached with the same credentials
+        if (!(target instanceof S3Connector) || !isSameStorage((S3Connector) target)) {
+            return false;
+        }
+        try {
+            String fromKey = toKey(srcPath);
+            HeadObjectResponse response = s3Client.headObject(request -> request.bucket(bucket).key(fromKey));
+            S3MultipartOutputStream.copyObject(s3Client, bucket, fromKey, ((S3Connector) target).bucket,
+                    toKey(targetPath), response.contentLength());
+            return true;
+        } catch (Exception e) {
+            log.error("S3 connector copy file failed", e);
+            throw new RuntimeException("S3 connector copy file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    private boolean isSameStorage(S3Connector other) {
+        return Objects.equals(endpoint, other.endpoint) && region.equals(other.region)
+                && Objects.equals(accessKey, other.accessKey) && Objects.equals(secretKey, other.secretKey);
+    }
+
+    @Override
+    public boolean validate() {
+        // every request is independent, the http connections are checked by the client pool
+        return true;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (s3Client != null) {
+            s3Client.close();
+        }
+    }
+
+    /**
+     * Turn an error of the S3 client into an IOException telling whether a retry may help, a
+     * missing object is a FileNotFoundException, a denied or rejected request an
+     * AccessDeniedException, server errors, throttling and network errors are plain IOExceptions.
+     */
+    static IOException toIOException(SdkException e) {
+        IOException exception;
+        if (!(e instanceof SdkServiceException) || ((SdkServiceException) e).retryable()
+                || ((SdkServiceException) e).statusCode() >= 500) {
+            // no response from the server, or a server error or throttling
+            exception = new IOException(e.getMessage());
+        } else if (((SdkServiceException) e).statusCode() == 404) {
+            exception = new FileNotFoundException(e.getMessage());
+        } else {
+            exception = new AccessDeniedException(null, null, e.getMessage());
+        }
+        exception.initCause(e);
+        return exception;
+    }
+
+    /**
+     * Cause of the exceptions thrown by the connector, the errors of the client are turned into IOExceptions
+     */
+    private static Throwable toCause(Exception e) {
+        return e instanceof SdkException ? toIOException((SdkException) e) : e;
+    }
+
+    /**
+     * Object key of a path, keys do not start with a slash
+     */
+    private static String toKey(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        return path.substring(start);
+    }
+
+    /**
+     * Key prefix of the objects of a directory, empty for the whole bucket
+     */
+    private static String toPrefix(String dir) {
+        String prefix = dir == null ? "" : toKey(dir.trim());
+        return prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.dataround.link.connector.AbortableOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+/**
+ * Output stream of an object uploaded as parts sent in parallel while the next part is filled.
+ * An object smaller than one part is sent with one PutObject. The object only appears once the
+ * stream is closed, a failed upload is aborted and leaves the previous object untouched. A stream
+ * whose write failed is aborted by close(), a writer whose source failed calls abort().
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+class S3MultipartOutputStream extends OutputStream implements AbortableOutputStream {
+
+    // S3 rejects parts smaller than 5 MB except the last one, more than 10000 parts, and copies over 5 GB
+    static final long MIN_PART_SIZE = 5L * 1024L * 1024L;
+    private static final int MAX_PARTS = 10000;
+    private static final long MAX_COPY_SIZE = 5L * 1024L * 1024L * 1024L;
+    // the part size doubles every 1000 parts up to 1 GB, so that a stream of unknown size fits in the parts
+    private static final int PARTS_PER_SIZE = 1000;
+    private static final long MAX_PART_SIZE = 1024L * 1024L * 1024L;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final S3Client s3Client;
+    private final ExecutorService executor;
+    private final String bucket;
+    private final String key;
+    private final int concurrency;
+    // parts being uploaded
+    private final Semaphore permits;
+    private final List<CompletedPart> parts = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long partSize;
+    private String uploadId;
+    private int partNumber = 0;
+    private byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
+    // a write failed, the object is not complete
+    private boolean failed = false;
+
+    /**
+     * @param offset bytes of the current object kept before the written ones
+     */
+    S3MultipartOutputStream(S3Client s3Client, ExecutorService executor, String bucket, String key, long partSize,
+            int concurrency, long offset) throws IOException {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.bucket = bucket;
+        this.key = key;
+        this.partSize = Math.min(partSize, MAX_PART_SIZE);
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        // small objects do not pay for a whole part
+        this.buffer = new byte[(int) Math.min(this.partSize, INITIAL_BUFFER_SIZE)];
+        if (offset > 0) {
+            keepPrefix(offset);
+        }
+    }
+
+    /**
+     * Start the object with the first bytes of the current one, copied on the server side as
+     * parts, the rest too small for a part is downloaded into the buffer.
+     */
+    private void keepPrefix(long offset) throws IOException {
+        try {
+            long copied = 0L;
+            if (offset >= MIN_PART_SIZE) {
+                startUpload();
+                partNumber = copyParts(s3Client, bucket, key, bucket, key, uploadId, 0L,
+                        offset - offset % MIN_PART_SIZE, parts);
+                copied = offset - offset % MIN_PART_SIZE;
+            }
+            if (copied < offset) {
+                long start = copied;
+                byte[] rest = s3Client.getObjectAsBytes(request -> request.bucket(bucket).key(key)
+                        .range("bytes=" + start + "-" + (offset - 1))).asByteArrayUnsafe();
+                write(rest, 0, rest.length);
+            }
+        } catch (SdkException e) {
+            abortUpload();
+            throw S3Connector.toIOException(e);
+        } catch (IOException | RuntimeException e) {
+            abortUpload();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try {
+            append(b, off, len);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = (int) Math.min(len, partSize - count);
+            if (count + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(partSize, Math.max(count + n, buffer.length * 2L)));
+            }
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == partSize) {
+                uploadPart();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (failed) {
+            abort();
+            throw new IOException("Upload of object " + key + " aborted after a failed write");
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                byte[] data = buffer;
+                int length = count;
+                s3Client.putObject(request -> request.bucket(bucket).key(key),
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(data, 0, length), length,
+                                CONTENT_TYPE));
+                return;
+            }
+            if (count > 0) {
+                uploadPart();
+            }
+            // wait for the parts in flight
+            permits.acquire(concurrency);
+            permits.release(concurrency);
+            checkFailure();
+            List<CompletedPart> completedParts;
+            synchronized (parts) {
+                completedParts = new ArrayList<>(parts);
+            }
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+            s3Client.completeMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(completedParts)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortUpload();
+            throw new InterruptedIOException("Interrupted while uploading object " + key);
+        } catch (SdkException e) {
+            abortUpload();
+            throw S3Connector.toIOException(e);
+        } catch (IOException | RuntimeException e) {
+            abortUpload();
+            throw e;
+        } finally {
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer = null;
+        if (uploadId != null) {
+            try {
+                // a part finishing after the abort would be kept by the server
+                permits.acquire(concurrency);
+                permits.release(concurrency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        abortUpload();
+        log.debug("aborted upload of object {}", key);
+    }
+
+    /**
+     * Send the buffer as the next part, waiting while concurrency parts are in flight.
+     */
+    private void uploadPart() throws IOException {
+        startUpload();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading object " + key);
+        }
+        try {
+            checkFailure();
+            if (partNumber >= MAX_PARTS) {
+                throw new IOException("Object " + key + " has more than " + MAX_PARTS + " parts");
+            }
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        int number = ++partNumber;
+        byte[] data = buffer;
+        int length = count;
+        executor.execute(() -> {
+            try {
+                String eTag = s3Client.uploadPart(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                        .partNumber(number).contentLength((long) length),
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(data, 0, length), length,
+                                CONTENT_TYPE)).eTag();
+                synchronized (parts) {
+                    parts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build());
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                permits.release();
+            }
+        });
+        if (number % PARTS_PER_SIZE == 0 && partSize < MAX_PART_SIZE) {
+            partSize = Math.min(partSize * 2, MAX_PART_SIZE);
+        }
+        // the object is large, the next parts are buffered whole
+        buffer = new byte[(int) partSize];
+        count = 0;
+    }
+
+    private void startUpload() throws IOException {
+        if (uploadId == null) {
+            try {
+                uploadId = s3Client.createMultipartUpload(request -> request.bucket(bucket).key(key)).uploadId();
+            } catch (SdkException e) {
+                throw S3Connector.toIOException(e);
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof SdkException) {
+            throw S3Connector.toIOException((SdkException) e);
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e != null) {
+            throw new IOException("Failed to upload a part of object " + key, e);
+        }
+    }
+
+    private void abortUpload() {
+        if (uploadId == null) {
+            return;
+        }
+        try {
+            s3Client.abortMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId));
+        } catch (Exception e) {
+            // the bucket lifecycle rules clean up the parts left behind
+            log.warn("Failed to abort the multipart upload {} of object {}", uploadId, key, e);
+        }
+    }
+
+    /**
+     * Copy an object on the server side, objects over 5 GB are copied as parts. The buckets may
+     * differ when the credentials of the client can read the source and write the target.
+     */
+    static void copyObject(S3Client s3Client, String fromBucket, String fromKey, String toBucket, String toKey,
+            long size) {
+        if (size <= MAX_COPY_SIZE) {
+            s3Client.copyObject(request -> request.sourceBucket(fromBucket).sourceKey(fromKey)
+                    .destinationBucket(toBucket).destinationKey(toKey));
+            return;
+        }
+        String uploadId = s3Client.createMultipartUpload(request -> request.bucket(toBucket).key(toKey)).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            copyParts(s3Client, fromBucket, fromKey, toBucket, toKey, uploadId, 0L, size, parts);
+            s3Client.completeMultipartUpload(request -> request.bucket(toBucket).key(toKey).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+        } catch (RuntimeException e) {
+            s3Client.abortMultipartUpload(request -> request.bucket(toBucket).key(toKey).uploadId(uploadId));
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the range [start, end) of an object as parts of at most 5 GB of a multipart upload,
+     * numbered from the number of parts already in the list.
+     *
+     * @return the number of the last part
+     */
+    private static int copyParts(S3Client s3Client, String fromBucket, String fromKey, String toBucket, String toKey,
+            String uploadId, long start, long end, List<CompletedPart> parts) {
+        int number = parts.size();
+        for (long position = start; position < end; position += MAX_COPY_SIZE) {
+            // only the last part may be smaller than 5 MB
+            String range = "bytes=" + position + "-" + (Math.min(position + MAX_COPY_SIZE, end) - 1);
+            int partNumber = ++number;
+            String eTag = s3Client.uploadPartCopy(request -> request.sourceBucket(fromBucket).sourceKey(fromKey)
+                    .destinationBucket(toBucket).destinationKey(toKey).uploadId(uploadId).partNumber(partNumber)
+                    .copySourceRange(range)).copyPartResult().eTag();
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+        }
+        return number;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.connector.file;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Input stream of a large object read as ranges fetched in parallel. The ranges after the one
+ * being read are fetched ahead, at most concurrency ranges are held in memory.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+class S3RangedInputStream extends InputStream {
+
+    private final S3Client s3Client;
+    private final ExecutorService executor;
+    private final String bucket;
+    private final String key;
+    // the ranges must all come from the same version of the object
+    private final String eTag;
+    private final long size;
+    private final long rangeSize;
+    private final int concurrency;
+    // ranges fetched ahead, in the order of the object
+    private final Deque<Future<byte[]>> ranges = new ArrayDeque<>();
+    private long nextRangeStart = 0L;
+    private byte[] current;
+    private int currentPosition;
+    private boolean closed = false;
+
+    S3RangedInputStream(S3Client s3Client, ExecutorService executor, String bucket, String key, String eTag,
+            long size, long rangeSize, int concurrency) {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.bucket = bucket;
+        this.key = key;
+        this.eTag = eTag;
+        this.size = size;
+        this.rangeSize = rangeSize;
+        this.concurrency = concurrency;
+        fetchAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextRange()) {
+            return -1;
+        }
+        return current[currentPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextRange()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - currentPosition);
+        System.arraycopy(current, currentPosition, b, off, n);
+        currentPosition += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - currentPosition;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // the ranges fetched ahead are not needed any more
+        for (Future<byte[]> range : ranges) {
+            range.cancel(true);
+        }
+        ranges.clear();
+        current = null;
+    }
+
+    /**
+     * Make sure the current range has bytes left, waiting for the next one if needed.
+     *
+     * @return false at the end of the object
+     */
+    private boolean nextRange() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || currentPosition >= current.length) {
+            Future<byte[]> range = ranges.poll();
+            if (range == null) {
+                return false;
+            }
+            try {
+                current = range.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading object " + key);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SdkException) {
+                    throw S3Connector.toIOException((SdkException) cause);
+                }
+                throw cause instanceof IOException ? (IOException) cause
+                        : new IOException("Failed to read object " + key + ": " + cause.getMessage(), cause);
+            }
+            currentPosition = 0;
+            fetchAhead();
+        }
+        return true;
+    }
+
+    private void fetchAhead() {
+        while (ranges.size() < concurrency && nextRangeStart < size) {
+            long start = nextRangeStart;
+            long end = Math.min(start + rangeSize, size) - 1;
+            ranges.add(executor.submit(() -> fetch(start, end)));
+            nextRangeStart = end + 1;
+        }
+    }
+
+    private byte[] fetch(long start, long end) throws IOException {
+        byte[] data = s3Client.getObjectAsBytes(request -> {
+            request.bucket(bucket).key(key).range("bytes=" + start + "-" + end);
+            if (eTag != null) {
+                // fails if the object is replaced while it is read
+                request.ifMatch(eTag);
+            }
+        }).asByteArrayUnsafe();
+        if (data.length != end - start + 1) {
+            throw new EOFException("Unexpected length " + data.length + " of range " + start + "-" + end
+                    + " of object " + key);
+        }
+        return data;
+    }
+}
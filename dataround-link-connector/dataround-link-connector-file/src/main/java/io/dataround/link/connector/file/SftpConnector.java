@@ -21,14 +21,28 @@ import com.jcraft.jsch.*;
 
 import io.dataround.link.common.utils.ConnectorNameConstants;
 import io.dataround.link.connector.AbstractFileConnector;
+import io.dataround.link.connector.DirectoryWalker;
+import io.dataround.link.connector.FileChecksum;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Vector;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
@@ -42,6 +56,8 @@ import org.apache.commons.io.filefilter.WildcardFileFilter;
 @Slf4j
 public class SftpConnector extends AbstractFileConnector {
 
+    private static final Pattern SHA256_OUTPUT = Pattern.compile("^\\\\?([0-9a-fA-F]{64})\\s");
+
     private Session session;
     private ChannelSftp sftpChannel;
     private boolean connected = false;
@@ -56,7 +72,16 @@ public class SftpConnector extends AbstractFileConnector {
     private boolean strictHostKeyChecking;
     private Integer timeout;
     private String encoding;
-
+    // whether the server may run sha256sum through an exec channel
+    private boolean remoteChecksum;
+    // cleared once the server fails to compute the checksums of the blocks of a file
+    private boolean remoteBlockChecksum = true;
+    // whether files copied to the same account on the same server may be copied by cp through an exec channel
+    private boolean remoteCopy;
+    // channels reading directories in parallel during a recursive listing
+    private int listParallelism;
+    // read requests a channel keeps outstanding, the round trips of a download overlap
+    private int bulkRequests;
 
     @Override
     public String getName() {
@@ -78,6 +103,13 @@ public class SftpConnector extends AbstractFileConnector {
         // Handle potential null values for timeout, config map contains null values
         String strTimeout = config.get("timeout");
         this.timeout = strTimeout == null ? 30000 : Integer.parseInt(strTimeout);
+        this.remoteChecksum = Boolean.parseBoolean(config.getOrDefault("remoteChecksum", "false"));
+        this.remoteCopy = Boolean.parseBoolean(config.getOrDefault("remoteCopy", "false"));
+        String strListParallelism = config.get("listParallelism");
+        this.listParallelism = strListParallelism == null ? 4 : Integer.parseInt(strListParallelism.trim());
+        // jsch keeps 16 by default, 64 requests of 32KB fill the 2MB window of the channel
+        String strBulkRequests = config.get("bulkRequests");
+        this.bulkRequests = strBulkRequests == null ? 64 : Integer.parseInt(strBulkRequests.trim());
     }
 
     @Override
@@ -105,38 +137,289 @@ public class SftpConnector extends AbstractFileConnector {
     }
 
     @Override
-    public List<String> getFiles(String dir, String filePattern, boolean recursive) {
-        List<String> fileList = new ArrayList<>();
+    public void listFiles(String dir, String filePattern, boolean recursive, Consumer<FileInfo> consumer) {
         try {
             connect();
-            getFilesRecursive(dir, filePattern, recursive, fileList);
-            // return relative path
-            if (dir != null && !dir.trim().isEmpty()) {
-                sftpChannel.cd(dir);
+            // resolve the directory once with realpath instead of cd and pwd, the directories
+            // below are read by absolute path and the files reported relative to it
+            String baseDir;
+            try {
+                baseDir = sftpChannel.realpath(dir == null || dir.trim().isEmpty() ? "." : dir);
+            } catch (SftpException e) {
+                log.warn("SFTP connector resolve directory failed, dir: {}", dir);
+                return;
             }
-            int length = sftpChannel.pwd().length() + 1;
-            for (int i = 0; i < fileList.size(); i++) {
-                fileList.set(i, fileList.get(i).substring(length));
+            int length = baseDir.endsWith("/") ? baseDir.length() : baseDir.length() + 1;
+            IOFileFilter fileFilter = null;
+            if (filePattern != null && !filePattern.trim().isEmpty()) {
+                fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
             }
+            long count = new DirectoryWalker<>("sftp", listParallelism,
+                    createDirectoryReader(fileFilter, recursive, length)).walk(sftpChannel, baseDir, consumer);
             log.info("SFTP connector get file list, dir: {}, file count: {}, pattern: {}, recursive: {}",
-                    dir, fileList.size(), filePattern, recursive);
+                    dir, count, filePattern, recursive);
         } catch (Exception e) {
             log.error("SFTP connector get file list failed", e);
-            throw new RuntimeException("SFTP connector get file list failed: " + e.getMessage(), e);
+            throw new RuntimeException("SFTP connector get file list failed: " + e.getMessage(), toCause(e));
         } finally {
             disconnect();
         }
-        return fileList;
+    }
+
+    @Override
+    public void listDirectory(String dir, Consumer<FileInfo> consumer) {
+        try {
+            connect();
+            @SuppressWarnings("unchecked")
+            Vector<ChannelSftp.LsEntry> entries = sftpChannel.ls(dir);
+            for (ChannelSftp.LsEntry entry : entries) {
+                String fileName = entry.getFilename();
+                SftpATTRS attrs = entry.getAttrs();
+                if (!".".equals(fileName) && !"..".equals(fileName) && (attrs.isReg() || attrs.isDir())) {
+                    consumer.accept(new FileInfo(fileName, attrs.getSize(), attrs.getMTime() * 1000L, attrs.isDir()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("SFTP connector list directory failed", e);
+            throw new RuntimeException("SFTP connector list directory failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public long getFileSize(String filePath) {
+        try {
+            connect();
+            return sftpChannel.stat(filePath).getSize();
+        } catch (Exception e) {
+            log.error("SFTP connector get file size failed", e);
+            throw new RuntimeException("SFTP connector get file size failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public FileInfo getFileInfo(String filePath) {
+        try {
+            connect();
+            SftpATTRS attrs = sftpChannel.stat(filePath);
+            return new FileInfo(filePath, attrs.getSize(), attrs.getMTime() * 1000L, attrs.isDir());
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            log.error("SFTP connector get file info failed", e);
+            throw new RuntimeException("SFTP connector get file info failed: " + e.getMessage(), toCause(e));
+        } catch (Exception e) {
+            log.error("SFTP connector get file info failed", e);
+            throw new RuntimeException("SFTP connector get file info failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public String getChecksum(String filePath, String algorithm) {
+        if (!remoteChecksum || !FileChecksum.SHA256.equalsIgnoreCase(algorithm)) {
+            return null;
+        }
+        ChannelExec channel = null;
+        try {
+            connect();
+            channel = (ChannelExec) session.openChannel("exec");
+            channel.setCommand("sha256sum -- " + quote(filePath));
+            channel.setInputStream(null);
+            InputStream output = channel.getInputStream();
+            channel.connect(timeout);
+            String result = IOUtils.toString(output, StandardCharsets.UTF_8);
+            Matcher matcher = SHA256_OUTPUT.matcher(result);
+            if (!matcher.find()) {
+                log.warn("SFTP connector got no checksum of file {}: {}", filePath, result);
+                return null;
+            }
+            return matcher.group(1).toLowerCase();
+        } catch (Exception e) {
+            log.warn("SFTP connector failed to run sha256sum on file {}", filePath, e);
+            return null;
+        } finally {
+            if (channel != null) {
+                channel.disconnect();
+            }
+        }
+    }
+
+    @Override
+    public List<String> getBlockChecksums(String filePath, long blockSize, String algorithm) {
+        if (!remoteChecksum || !remoteBlockChecksum || !FileChecksum.SHA256.equalsIgnoreCase(algorithm)) {
+            return null;
+        }
+        ChannelExec channel = null;
+        try {
+            connect();
+            channel = (ChannelExec) session.openChannel("exec");
+            // GNU split pipes every block to its own sha256sum, the lines come in the order of the blocks
+            channel.setCommand("split -b " + blockSize + " --filter=sha256sum -- " + quote(filePath));
+            channel.setInputStream(null);
+            InputStream output = channel.getInputStream();
+            InputStream errors = channel.getErrStream();
+            channel.connect(timeout);
+            String result = IOUtils.toString(output, StandardCharsets.UTF_8);
+            String message = IOUtils.toString(errors, StandardCharsets.UTF_8).trim();
+            while (!channel.isClosed()) {
+                Thread.sleep(10L);
+            }
+            if (channel.getExitStatus() != 0) {
+                // no GNU split or a restricted shell, the callers read the files instead
+                log.warn("SFTP server {} can not compute block checksums: {}", host, message);
+                remoteBlockChecksum = false;
+                return null;
+            }
+            List<String> checksums = new ArrayList<>();
+            for (String line : result.split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Matcher matcher = SHA256_OUTPUT.matcher(line);
+                if (!matcher.find()) {
+                    log.warn("SFTP connector got no block checksum of file {}: {}", filePath, line);
+                    return null;
+                }
+                checksums.add(matcher.group(1).toLowerCase());
+            }
+            return checksums;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("SFTP connector failed to compute block checksums of file {}", filePath, e);
+            return null;
+        } finally {
+            if (channel != null) {
+                channel.disconnect();
+            }
+        }
+    }
+
+    @Override
+    public boolean setModifiedTime(String filePath, long modifiedTime) {
+        try {
+            connect();
+            // SFTP keeps the times in seconds
+            sftpChannel.setMtime(filePath, (int) (modifiedTime / 1000L));
+            return true;
+        } catch (Exception e) {
+            log.error("SFTP connector set modified time failed", e);
+            throw new RuntimeException("SFTP connector set modified time failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public boolean copyTo(FileConnector target, String srcPath, String targetPath) {
+        // cp runs with the rights of the login, the target must be the same account on the same server
+        if (!remoteCopy || !(target instanceof SftpConnector) || !isSameAccount((SftpConnector) target)) {
+            return false;
+        }
+        ChannelExec channel = null;
+        try {
+            connect();
+            channel = (ChannelExec) session.openChannel("exec");
+            channel.setCommand("cp -- " + quote(srcPath) + " " + quote(targetPath));
+            channel.setInputStream(null);
+            InputStream errors = channel.getErrStream();
+            channel.connect(timeout);
+            // the error output ends with the command, the exit status follows
+            String message = IOUtils.toString(errors, StandardCharsets.UTF_8).trim();
+            while (!channel.isClosed()) {
+                Thread.sleep(10L);
+            }
+            int status = channel.getExitStatus();
+            if (status == 0) {
+                if (isCopied(srcPath, targetPath)) {
+                    return true;
+                }
+                // a cp that reports success without copying can not be trusted for other files either
+                log.warn("SFTP server {} reported a cp of {} that did not copy it, files are streamed", host, srcPath);
+                remoteCopy = false;
+                return false;
+            }
+            if (status == 126 || status == 127) {
+                // a restricted shell or no cp, the files are streamed from now on
+                log.warn("SFTP server {} can not run cp, files are streamed: {}", host, message);
+                remoteCopy = false;
+                return false;
+            }
+            throw new IOException("cp of file " + srcPath + " exited with status " + status + ": " + message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("SFTP connector copy file interrupted", e);
+        } catch (Exception e) {
+            log.error("SFTP connector copy file failed", e);
+            throw new RuntimeException("SFTP connector copy file failed: " + e.getMessage(), toCause(e));
+        } finally {
+            if (channel != null) {
+                channel.disconnect();
+            }
+        }
+    }
+
+    private boolean isCopied(String srcPath, String targetPath) throws SftpException {
+        long srcSize = sftpChannel.stat(srcPath).getSize();
+        try {
+            return sftpChannel.stat(targetPath).getSize() == srcSize;
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isSameAccount(SftpConnector other) {
+        return host != null && host.equalsIgnoreCase(other.host) && Objects.equals(port, other.port)
+                && Objects.equals(user, other.user);
+    }
+
+    /**
+     * Turn an error of JSch into an IOException telling whether a retry may help, a missing file is
+     * a FileNotFoundException, a denied permission or an unsupported operation an
+     * AccessDeniedException, other errors, like a lost connection, plain IOExceptions.
+     */
+    private static Throwable toCause(Exception e) {
+        IOException exception;
+        if (e instanceof SftpException) {
+            int id = ((SftpException) e).id;
+            if (id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                exception = new FileNotFoundException(e.getMessage());
+            } else if (id == ChannelSftp.SSH_FX_PERMISSION_DENIED || id == ChannelSftp.SSH_FX_OP_UNSUPPORTED) {
+                exception = new AccessDeniedException(null, null, e.getMessage());
+            } else {
+                exception = new IOException(e.getMessage());
+            }
+        } else if (e instanceof JSchException) {
+            exception = new IOException(e.getMessage());
+        } else {
+            return e;
+        }
+        exception.initCause(e);
+        return exception;
+    }
+
+    /**
+     * Quote a path for the remote shell
+     */
+    private static String quote(String path) {
+        return "'" + path.replace("'", "'\\''") + "'";
     }
 
     @Override
     public InputStream readFile(String filePath) {
+        return readFile(filePath, 0L);
+    }
+
+    @Override
+    public InputStream readFile(String filePath, long offset) {
         try {
             connect();
-            return sftpChannel.get(filePath);
+            return sftpChannel.get(filePath, null, offset);
         } catch (Exception e) {
             log.error("SFTP connector read file failed", e);
-            throw new RuntimeException("SFTP connector read file failed: " + e.getMessage(), e);
+            throw new RuntimeException("SFTP connector read file failed: " + e.getMessage(), toCause(e));
         }  
     }
 
@@ -144,61 +427,135 @@ public class SftpConnector extends AbstractFileConnector {
     public OutputStream writeFile(String targetPath) {
         try {
             connect();
-            return sftpChannel.put(targetPath, ChannelSftp.APPEND);
+            // replace the target, a rerun must not append to the previous copy
+            return sftpChannel.put(targetPath, ChannelSftp.OVERWRITE);
         } catch (Exception e) {
             log.error("SFTP connector write file failed", e);
-            throw new RuntimeException("SFTP connector write file failed: " + e.getMessage(), e);
+            throw new RuntimeException("SFTP connector write file failed: " + e.getMessage(), toCause(e));
         } 
     }
 
+    @Override
+    public OutputStream writeFile(String targetPath, long offset) {
+        try {
+            connect();
+            // RESUME adds the current size of the remote file to the offset
+            long currentSize = 0L;
+            try {
+                currentSize = sftpChannel.stat(targetPath).getSize();
+            } catch (SftpException e) {
+                if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                    throw e;
+                }
+            }
+            return sftpChannel.put(targetPath, null, ChannelSftp.RESUME, offset - currentSize);
+        } catch (Exception e) {
+            log.error("SFTP connector write file failed", e);
+            throw new RuntimeException("SFTP connector write file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public void rename(String fromPath, String toPath) {
+        try {
+            connect();
+            // JSch uses posix-rename@openssh.com when the server supports it, which replaces the target
+            sftpChannel.rename(fromPath, toPath);
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_FAILURE) {
+                log.error("SFTP connector rename file failed", e);
+                throw new RuntimeException("SFTP connector rename file failed: " + e.getMessage(), toCause(e));
+            }
+            // plain SFTP rename does not overwrite, remove the previous target first
+            try {
+                sftpChannel.rm(toPath);
+                sftpChannel.rename(fromPath, toPath);
+            } catch (SftpException ex) {
+                log.error("SFTP connector rename file failed", ex);
+                throw new RuntimeException("SFTP connector rename file failed: " + ex.getMessage(), toCause(ex));
+            }
+        } catch (Exception e) {
+            log.error("SFTP connector rename file failed", e);
+            throw new RuntimeException("SFTP connector rename file failed: " + e.getMessage(), toCause(e));
+        }
+    }
+
+    @Override
+    public boolean supportsPositionalWrite() {
+        // the write position depends on the remote file size, concurrent writers would race on it
+        return false;
+    }
+
+    @Override
+    public boolean validate() {
+        if (!connected) {
+            return true;
+        }
+        try {
+            if (session == null || !session.isConnected() || sftpChannel == null || !sftpChannel.isConnected()) {
+                return false;
+            }
+            session.sendKeepAliveMsg();
+            return true;
+        } catch (Exception e) {
+            log.debug("SFTP connector validate failed, host: {}, port: {}", host, port, e);
+            return false;
+        }
+    }
+
     @Override
     public void close() throws Exception {
         disconnect();
     }
 
-    private void getFilesRecursive(String dir, String filePattern, boolean recursive, List<String> fileList)
-            throws SftpException {
-        String originalDir = sftpChannel.pwd();
-        try {
-            if (dir != null && !dir.trim().isEmpty()) {
+    /**
+     * Reads the directories of a listing, the helpers of the walk open their own channel on
+     * the SSH session of the connector, no extra login is needed.
+     */
+    private DirectoryWalker.DirectoryReader<ChannelSftp, String> createDirectoryReader(IOFileFilter fileFilter,
+            boolean recursive, int length) {
+        return new DirectoryWalker.DirectoryReader<ChannelSftp, String>() {
+            @Override
+            public ChannelSftp openSession() throws JSchException {
+                return openChannel();
+            }
+
+            @Override
+            public void closeSession(ChannelSftp channel) {
+                channel.disconnect();
+            }
+
+            @Override
+            public void readDirectory(ChannelSftp channel, String dir, Consumer<FileInfo> files,
+                    Consumer<String> subDirs) {
+                Vector<ChannelSftp.LsEntry> entries;
                 try {
-                    sftpChannel.cd(dir);
+                    @SuppressWarnings("unchecked")
+                    Vector<ChannelSftp.LsEntry> list = channel.ls(dir);
+                    entries = list;
                 } catch (SftpException e) {
-                    log.warn("SFTP connector change directory failed, dir: {}", dir);
+                    log.warn("SFTP connector list directory failed, dir: {}", dir);
                     return;
                 }
-            }
-            @SuppressWarnings("unchecked")
-            Vector<ChannelSftp.LsEntry> files = sftpChannel.ls(".");
-            IOFileFilter fileFilter = null;
-            if (filePattern != null && !filePattern.trim().isEmpty()) {
-                fileFilter = WildcardFileFilter.builder().setWildcards(filePattern).get();
-            }
-            String currentWorkingDir = sftpChannel.pwd();
-            for (ChannelSftp.LsEntry entry : files) {
-                String fileName = entry.getFilename();
-                if (".".equals(fileName) || "..".equals(fileName)) {
-                    continue;
-                }
-                SftpATTRS attrs = entry.getAttrs();
-                String fullPath = currentWorkingDir.endsWith("/") ? currentWorkingDir + fileName : currentWorkingDir + "/" + fileName;
-                if (attrs.isReg()) {
-                    if (fileFilter == null || fileFilter.accept(null, fileName)) {
-                        fileList.add(fullPath);
+                for (ChannelSftp.LsEntry entry : entries) {
+                    String fileName = entry.getFilename();
+                    if (".".equals(fileName) || "..".equals(fileName)) {
+                        continue;
+                    }
+                    SftpATTRS attrs = entry.getAttrs();
+                    String fullPath = dir.endsWith("/") ? dir + fileName : dir + "/" + fileName;
+                    if (attrs.isReg()) {
+                        if (fileFilter == null || fileFilter.accept(null, fileName)) {
+                            // the listing carries the attributes, no stat per file is needed
+                            files.accept(new FileInfo(fullPath.substring(length), attrs.getSize(),
+                                    attrs.getMTime() * 1000L, false));
+                        }
+                    } else if (attrs.isDir() && recursive) {
+                        subDirs.accept(fullPath);
                     }
-                } else if (attrs.isDir() && recursive) {
-                    getFilesRecursive(fullPath, filePattern, recursive, fileList);
-                }
-            }
-        } finally {
-            if (originalDir != null) {
-                try {
-                    sftpChannel.cd(originalDir);
-                } catch (SftpException e) {
-                    log.warn("Failed to restore original directory: {}", originalDir, e);
                 }
             }
-        }
+        };
     }
 
     private void connect() throws JSchException, SftpException {
@@ -228,13 +585,20 @@ public class SftpConnector extends AbstractFileConnector {
             session.setTimeout(timeout);
         }
         session.connect();
-        Channel channel = session.openChannel("sftp");
-        channel.connect();
-        sftpChannel = (ChannelSftp) channel;
+        sftpChannel = openChannel();
         connected = true;
         log.debug("SFTP server connection established, host: {}, port: {}", host, port);
     }
 
+    // package private for the tests
+    ChannelSftp openChannel() throws JSchException {
+        ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+        channel.connect();
+        // writes are pipelined by jsch without limit, reads up to the bulk requests
+        channel.setBulkRequests(bulkRequests);
+        return channel;
+    }
+
     private void disconnect() {
         if (sftpChannel != null && sftpChannel.isConnected()) {
             sftpChannel.disconnect();
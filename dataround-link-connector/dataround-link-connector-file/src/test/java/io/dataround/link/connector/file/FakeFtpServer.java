@@ -0,0 +1,274 @@
+package io.dataround.link.connector.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * FTP server for the tests, serving a local directory in passive mode: login, CWD, PWD, FEAT,
+ * MLSD and LIST. Whether MLSD is advertised or refused and whether LIST takes a pattern can be
+ * set to play the servers the connector has to fall back for.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FakeFtpServer implements AutoCloseable {
+
+    private final Path root;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> commandCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    // FEAT advertises MLST
+    private volatile boolean machineListing = true;
+    // MLSD is answered 502 although FEAT may advertise it
+    private volatile boolean refuseMlsd;
+    // LIST takes a file name pattern, otherwise the pattern is taken for a file name
+    private volatile boolean listGlob = true;
+
+    public FakeFtpServer(Path root) throws IOException {
+        this.root = root;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.submit(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setMachineListing(boolean machineListing) {
+        this.machineListing = machineListing;
+    }
+
+    public void setRefuseMlsd(boolean refuseMlsd) {
+        this.refuseMlsd = refuseMlsd;
+    }
+
+    public void setListGlob(boolean listGlob) {
+        this.listGlob = listGlob;
+    }
+
+    /**
+     * Times the command was received since the server started.
+     */
+    public int getCommandCount(String command) {
+        AtomicInteger count = commandCounts.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                executor.submit(() -> serve(socket));
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String cwd = "/";
+        ServerSocket passive = null;
+        try (Socket control = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(control.getInputStream(),
+                        StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(control.getOutputStream(), StandardCharsets.UTF_8)) {
+            reply(out, "220 fake ftp server ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                int space = line.indexOf(' ');
+                String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+                String argument = space < 0 ? "" : line.substring(space + 1).trim();
+                commandCounts.computeIfAbsent(command, key -> new AtomicInteger()).incrementAndGet();
+                switch (command) {
+                    case "USER":
+                        reply(out, "331 password required");
+                        break;
+                    case "PASS":
+                        reply(out, "230 logged in");
+                        break;
+                    case "SYST":
+                        reply(out, "215 UNIX Type: L8");
+                        break;
+                    case "TYPE":
+                        reply(out, "200 type set");
+                        break;
+                    case "FEAT":
+                        reply(out, machineListing ? "211-Features:\r\n MLST type*;size*;modify*;\r\n UTF8\r\n211 End"
+                                : "211-Features:\r\n UTF8\r\n211 End");
+                        break;
+                    case "PWD":
+                        reply(out, "257 \"" + cwd + "\" is the current directory");
+                        break;
+                    case "CWD":
+                        String dir = resolve(cwd, argument);
+                        if (Files.isDirectory(toLocal(dir))) {
+                            cwd = dir;
+                            reply(out, "250 directory changed");
+                        } else {
+                            reply(out, "550 no such directory");
+                        }
+                        break;
+                    case "PASV":
+                        if (passive != null) {
+                            passive.close();
+                        }
+                        passive = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                        int port = passive.getLocalPort();
+                        reply(out, "227 Entering Passive Mode (127,0,0,1," + (port >> 8) + "," + (port & 0xff) + ")");
+                        break;
+                    case "MLSD":
+                        if (refuseMlsd) {
+                            if (passive != null) {
+                                passive.close();
+                            }
+                            reply(out, "502 command not implemented");
+                        } else {
+                            Path mlsdDir = toLocal(resolve(cwd, argument));
+                            sendListing(out, passive, Files.isDirectory(mlsdDir) ? machineList(mlsdDir) : null);
+                        }
+                        passive = null;
+                        break;
+                    case "LIST":
+                        sendListing(out, passive, list(toLocal(cwd), argument));
+                        passive = null;
+                        break;
+                    case "QUIT":
+                        reply(out, "221 bye");
+                        return;
+                    default:
+                        reply(out, "502 command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // connection closed by the client
+        } finally {
+            if (passive != null) {
+                try {
+                    passive.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the lines of a listing over the data connection, 550 if the directory does not exist.
+     */
+    private static void sendListing(Writer out, ServerSocket passive, List<String> lines) throws IOException {
+        if (passive == null) {
+            reply(out, "425 use PASV first");
+            return;
+        }
+        try (ServerSocket dataServer = passive) {
+            if (lines == null) {
+                reply(out, "550 no such file or directory");
+                return;
+            }
+            reply(out, "150 opening data connection");
+            try (Socket data = dataServer.accept(); OutputStream dataOut = data.getOutputStream()) {
+                for (String line : lines) {
+                    dataOut.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            reply(out, "226 transfer complete");
+        }
+    }
+
+    private static List<String> machineList(Path dir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Path path : children(dir)) {
+            String name = path.getFileName().toString();
+            if (Files.isDirectory(path)) {
+                lines.add("type=dir;modify=20261018080000; " + name);
+            } else {
+                lines.add("type=file;size=" + Files.size(path) + ";modify=20261018080000; " + name);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Entries of LIST, the argument is a file name pattern if the server globs, else a file name.
+     */
+    private List<String> list(Path dir, String argument) throws IOException {
+        List<Path> paths;
+        if (argument.isEmpty()) {
+            paths = children(dir);
+        } else if (listGlob) {
+            paths = children(dir).stream()
+                    .filter(path -> FilenameUtils.wildcardMatch(path.getFileName().toString(), argument))
+                    .collect(Collectors.toList());
+        } else {
+            Path file = dir.resolve(argument);
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            paths = List.of(file);
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path path : paths) {
+            boolean directory = Files.isDirectory(path);
+            lines.add((directory ? "drwxr-xr-x" : "-rw-r--r--") + "   1 ftp      ftp      "
+                    + (directory ? 4096 : Files.size(path)) + " Oct 18  2026 " + path.getFileName());
+        }
+        return lines;
+    }
+
+    private static List<Path> children(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String resolve(String cwd, String path) {
+        if (path.isEmpty()) {
+            return cwd;
+        }
+        String resolved = FilenameUtils.normalizeNoEndSeparator(
+                path.startsWith("/") ? path : cwd.endsWith("/") ? cwd + path : cwd + "/" + path, true);
+        return resolved == null || resolved.isEmpty() ? "/" : resolved;
+    }
+
+    private Path toLocal(String path) {
+        return root.resolve(path.substring(1));
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,352 @@
+package io.dataround.link.connector.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In memory S3 compatible server for the tests, path style requests of one bucket: objects,
+ * ranged GETs, paginated ListObjectsV2, multipart uploads and copies.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final String bucket;
+    private final NavigableMap<String, byte[]> objects = new TreeMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Instant lastModified = Instant.parse("2026-10-18T08:00:00Z");
+    // objects of one ListObjectsV2 page
+    private final int maxKeys;
+    private final AtomicInteger uploadedParts = new AtomicInteger();
+    private final AtomicInteger rangedGets = new AtomicInteger();
+    private final AtomicInteger listRequests = new AtomicInteger();
+
+    public FakeS3Server(String bucket, int maxKeys) throws IOException {
+        this.bucket = bucket;
+        this.maxKeys = maxKeys;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public synchronized byte[] getObject(String key) {
+        return objects.get(key);
+    }
+
+    public synchronized void putObject(String key, byte[] data) {
+        objects.put(key, data);
+    }
+
+    public int getUploadedParts() {
+        return uploadedParts.get();
+    }
+
+    public int getRangedGets() {
+        return rangedGets.get();
+    }
+
+    public int getListRequests() {
+        return listRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String prefix = "/" + bucket;
+            if (!path.startsWith(prefix)) {
+                send(exchange, 404, null, null);
+                return;
+            }
+            String key = URLDecoder.decode(path.substring(prefix.length()).replaceFirst("^/", ""),
+                    StandardCharsets.UTF_8);
+            String method = exchange.getRequestMethod();
+            if (key.isEmpty()) {
+                if ("GET".equals(method)) {
+                    list(exchange, query);
+                } else {
+                    send(exchange, 200, null, null);
+                }
+            } else if ("HEAD".equals(method)) {
+                head(exchange, key);
+            } else if ("GET".equals(method)) {
+                get(exchange, key);
+            } else if ("PUT".equals(method)) {
+                put(exchange, key, query);
+            } else if ("POST".equals(method)) {
+                post(exchange, key, query);
+            } else if ("DELETE".equals(method)) {
+                if (query.containsKey("uploadId")) {
+                    uploads.remove(query.get("uploadId"));
+                } else {
+                    synchronized (this) {
+                        objects.remove(key);
+                    }
+                }
+                send(exchange, 204, null, null);
+            } else {
+                send(exchange, 405, null, null);
+            }
+        } catch (Exception e) {
+            send(exchange, 500, "application/xml", "<Error><Code>InternalError</Code><Message>" + e
+                    + "</Message></Error>");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        listRequests.incrementAndGet();
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        String token = query.get("continuation-token");
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        xml.append("<Name>").append(bucket).append("</Name><Prefix>").append(prefix).append("</Prefix>");
+        TreeSet<String> commonPrefixes = new TreeSet<>();
+        int count = 0;
+        String next = null;
+        synchronized (this) {
+            for (Map.Entry<String, byte[]> entry : objects.tailMap(token == null ? prefix : token, true).entrySet()) {
+                String key = entry.getKey();
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                if (count == maxKeys) {
+                    next = key;
+                    break;
+                }
+                int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+                if (index >= 0) {
+                    commonPrefixes.add(key.substring(0, index + 1));
+                    continue;
+                }
+                xml.append("<Contents><Key>").append(key).append("</Key><LastModified>")
+                        .append(DateTimeFormatter.ISO_INSTANT.format(lastModified)).append("</LastModified><ETag>\"")
+                        .append(md5(entry.getValue())).append("\"</ETag><Size>").append(entry.getValue().length)
+                        .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+                count++;
+            }
+        }
+        for (String commonPrefix : commonPrefixes) {
+            xml.append("<CommonPrefixes><Prefix>").append(commonPrefix).append("</Prefix></CommonPrefixes>");
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount><MaxKeys>").append(maxKeys).append("</MaxKeys>");
+        xml.append("<IsTruncated>").append(next != null).append("</IsTruncated>");
+        if (next != null) {
+            xml.append("<NextContinuationToken>").append(next).append("</NextContinuationToken>");
+        }
+        xml.append("</ListBucketResult>");
+        send(exchange, 200, "application/xml", xml.toString());
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        byte[] data = getObject(key);
+        if (data == null) {
+            send(exchange, 404, null, null);
+            return;
+        }
+        exchange.getResponseHeaders().add("ETag", "\"" + md5(data) + "\"");
+        exchange.getResponseHeaders().add("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atZone(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(data.length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        byte[] data = getObject(key);
+        if (data == null) {
+            send(exchange, 404, "application/xml", "<Error><Code>NoSuchKey</Code><Message>" + key
+                    + "</Message></Error>");
+            return;
+        }
+        exchange.getResponseHeaders().add("ETag", "\"" + md5(data) + "\"");
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            exchange.sendResponseHeaders(200, data.length);
+            exchange.getResponseBody().write(data);
+            return;
+        }
+        rangedGets.incrementAndGet();
+        Matcher matcher = RANGE.matcher(range);
+        if (!matcher.matches()) {
+            send(exchange, 416, null, null);
+            return;
+        }
+        int start = Integer.parseInt(matcher.group(1));
+        int end = matcher.group(2).isEmpty() ? data.length - 1 : Math.min(Integer.parseInt(matcher.group(2)),
+                data.length - 1);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+        exchange.getResponseBody().write(data, start, end - start + 1);
+    }
+
+    private void put(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        byte[] data;
+        if (copySource != null) {
+            String sourceKey = URLDecoder.decode(copySource, StandardCharsets.UTF_8).replaceFirst("^/?" + bucket + "/", "");
+            data = getObject(sourceKey);
+            String range = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+            if (range != null) {
+                Matcher matcher = RANGE.matcher(range);
+                matcher.matches();
+                int start = Integer.parseInt(matcher.group(1));
+                int end = Integer.parseInt(matcher.group(2));
+                byte[] part = new byte[end - start + 1];
+                System.arraycopy(data, start, part, 0, part.length);
+                data = part;
+            }
+        } else {
+            data = readBody(exchange);
+        }
+        String eTag = "\"" + md5(data) + "\"";
+        if (query.containsKey("uploadId")) {
+            uploads.get(query.get("uploadId")).put(Integer.parseInt(query.get("partNumber")), data);
+            uploadedParts.incrementAndGet();
+        } else {
+            putObject(key, data);
+        }
+        if (copySource == null) {
+            exchange.getResponseHeaders().add("ETag", eTag);
+            send(exchange, 200, null, null);
+        } else {
+            String element = query.containsKey("uploadId") ? "CopyPartResult" : "CopyObjectResult";
+            send(exchange, 200, "application/xml", "<" + element + "><ETag>" + eTag + "</ETag><LastModified>"
+                    + DateTimeFormatter.ISO_INSTANT.format(lastModified) + "</LastModified></" + element + ">");
+        }
+    }
+
+    private void post(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        if (query.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            send(exchange, 200, "application/xml", "<InitiateMultipartUploadResult><Bucket>" + bucket
+                    + "</Bucket><Key>" + key + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            return;
+        }
+        Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+        Matcher matcher = PART_NUMBER.matcher(new String(readBody(exchange), StandardCharsets.UTF_8));
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        int count = 0;
+        while (matcher.find()) {
+            object.write(parts.get(Integer.parseInt(matcher.group(1))));
+            count++;
+        }
+        putObject(key, object.toByteArray());
+        send(exchange, 200, "application/xml", "<CompleteMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>"
+                + key + "</Key><ETag>\"" + md5(object.toByteArray()) + "-" + count + "\"</ETag></CompleteMultipartUploadResult>");
+    }
+
+    /**
+     * Request body, decoding the aws-chunked encoding of the signed streaming uploads
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            body = inputStream.readAllBytes();
+        }
+        String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha256 == null || !contentSha256.startsWith("STREAMING-")) {
+            return body;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = indexOfCrlf(body, position);
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";")[0].trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            data.write(body, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return data.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] body, int from) {
+        for (int i = from; i < body.length - 1; i++) {
+            if (body[i] == '\r' && body[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return body.length;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int index = pair.indexOf('=');
+            String name = URLDecoder.decode(index < 0 ? pair : pair.substring(0, index), StandardCharsets.UTF_8);
+            String value = index < 0 ? "" : URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static String md5(byte[] data) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("MD5").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
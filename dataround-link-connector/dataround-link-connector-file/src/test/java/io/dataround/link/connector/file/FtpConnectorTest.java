@@ -5,12 +5,23 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import io.dataround.link.common.connector.Param;
 
@@ -22,6 +33,9 @@ import io.dataround.link.common.connector.Param;
  */
 public class FtpConnectorTest {
 
+    @Rule
+    public TemporaryFolder serverFolder = new TemporaryFolder();
+
     private FtpConnector ftpConnector;
     private Param param;
 
@@ -125,4 +139,123 @@ public class FtpConnectorTest {
             assertTrue("File should end with .gz", file.endsWith(".gz"));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testListFilesWithMachineListing() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            FtpConnector connector = localConnector(server, Collections.emptyMap());
+            assertEquals(new HashSet<>(Arrays.asList("a.txt", "b.csv", "sub/c.txt")),
+                    new HashSet<>(connector.getFiles("data", null, true)));
+            assertEquals(2, server.getCommandCount("MLSD"));
+            assertEquals(0, server.getCommandCount("LIST"));
+        }
+    }
+
+    @Test
+    public void testListFilesWhenMlsdRefused() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            // FEAT advertises MLST but the server answers MLSD with 502
+            server.setRefuseMlsd(true);
+            FtpConnector connector = localConnector(server, Collections.emptyMap());
+            assertEquals(new HashSet<>(Arrays.asList("a.txt", "b.csv", "sub/c.txt")),
+                    new HashSet<>(connector.getFiles("data", null, true)));
+            // refused once, the other directories go straight to LIST
+            assertEquals(1, server.getCommandCount("MLSD"));
+            assertEquals(2, server.getCommandCount("LIST"));
+        }
+    }
+
+    @Test
+    public void testListFilesWithoutMachineListing() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            server.setMachineListing(false);
+            FtpConnector connector = localConnector(server, Collections.emptyMap());
+            assertEquals(new HashSet<>(Arrays.asList("a.txt", "sub/c.txt")),
+                    new HashSet<>(connector.getFiles("data", "*.txt", true)));
+            assertEquals(0, server.getCommandCount("MLSD"));
+            assertEquals(2, server.getCommandCount("LIST"));
+        }
+    }
+
+    @Test
+    public void testFeaturesDetectedOncePerConnection() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            Set<String> expected = new HashSet<>(Arrays.asList("a.txt", "b.csv", "sub/c.txt"));
+            for (int i = 0; i < 10; i++) {
+                writeFile("data/dir" + i + "/file.txt", "file");
+                expected.add("dir" + i + "/file.txt");
+            }
+            FtpConnector connector = localConnector(server, Collections.emptyMap());
+            assertEquals(expected, new HashSet<>(connector.getFiles("data", null, true)));
+            assertEquals(1, server.getConnections());
+            assertEquals(1, server.getCommandCount("FEAT"));
+            assertEquals(12, server.getCommandCount("MLSD"));
+            // the listing logs out, the next one asks the new connection again
+            assertEquals(expected, new HashSet<>(connector.getFiles("data", null, true)));
+            assertEquals(2, server.getConnections());
+            assertEquals(2, server.getCommandCount("FEAT"));
+        }
+    }
+
+    @Test
+    public void testServerGlob() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            FtpConnector connector = localConnector(server, Collections.singletonMap("serverGlob", "true"));
+            assertEquals(Collections.singletonList("a.txt"), connector.getFiles("data", "*.txt", false));
+            // the pattern goes to the server with LIST instead of MLSD
+            assertEquals(0, server.getCommandCount("MLSD"));
+            assertEquals(1, server.getCommandCount("LIST"));
+        }
+    }
+
+    @Test
+    public void testServerGlobNotSupported() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            // the server takes the pattern for a file name and answers 550
+            server.setListGlob(false);
+            FtpConnector connector = localConnector(server, Collections.singletonMap("serverGlob", "true"));
+            assertEquals(Collections.singletonList("a.txt"), connector.getFiles("data", "*.txt", false));
+            // listed again without the pattern and filtered by the connector
+            assertEquals(2, server.getCommandCount("LIST"));
+        }
+    }
+
+    @Test
+    public void testListFilesOfMissingDirectory() throws Exception {
+        try (FakeFtpServer server = newServer()) {
+            FtpConnector connector = localConnector(server, Collections.emptyMap());
+            assertTrue(connector.getFiles("missing", null, true).isEmpty());
+        }
+    }
+
+    /**
+     * FTP server with data/a.txt, data/b.csv and data/sub/c.txt
+     */
+    private FakeFtpServer newServer() throws IOException {
+        writeFile("data/a.txt", "a");
+        writeFile("data/b.csv", "bb");
+        writeFile("data/sub/c.txt", "ccc");
+        return new FakeFtpServer(serverFolder.getRoot().toPath());
+    }
+
+    private FtpConnector localConnector(FakeFtpServer server, Map<String, String> config) {
+        Param localParam = new Param();
+        localParam.setHost("127.0.0.1");
+        localParam.setPort(server.getPort());
+        localParam.setUser("test");
+        localParam.setPassword("test");
+        localParam.setConfig(new HashMap<>(config));
+        localParam.getConfig().put("passiveMode", "true");
+        localParam.getConfig().put("binaryMode", "true");
+        localParam.getConfig().put("timeout", "10000");
+        FtpConnector connector = new FtpConnector();
+        connector.initialize(localParam);
+        return connector;
+    }
+
+    private void writeFile(String path, String content) throws IOException {
+        Path file = serverFolder.getRoot().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
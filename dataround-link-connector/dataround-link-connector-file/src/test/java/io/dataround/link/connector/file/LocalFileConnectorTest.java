@@ -0,0 +1,159 @@
+package io.dataround.link.connector.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.FileChecksum;
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * LocalFileConnector unit test
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class LocalFileConnectorTest {
+
+    private LocalFileConnector localFileConnector;
+    private File baseDir;
+
+    @Before
+    public void setUp() throws Exception {
+        localFileConnector = new LocalFileConnector();
+        Param param = new Param();
+        param.setConfig(new HashMap<>());
+        localFileConnector.initialize(param);
+        baseDir = Files.createTempDirectory("local-file-connector").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void testGetName() {
+        assertEquals("LocalFile", localFileConnector.getName());
+    }
+
+    @Test
+    public void testGetFilesRelativePath() throws Exception {
+        FileUtils.writeStringToFile(new File(baseDir, "a.txt"), "a", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(baseDir, "sub/b.txt"), "b", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(baseDir, "sub/c.csv"), "c", StandardCharsets.UTF_8);
+        List<String> files = localFileConnector.getFiles(baseDir.getAbsolutePath(), "*.txt", true);
+        Collections.sort(files);
+        assertEquals(Arrays.asList("a.txt", "sub" + File.separator + "b.txt"), files);
+        assertEquals(Collections.singletonList("a.txt"), localFileConnector.getFiles(baseDir.getAbsolutePath(), "*.txt", false));
+    }
+
+    @Test
+    public void testParallelListing() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                FileUtils.writeStringToFile(new File(baseDir, "d" + i + "/e" + j + "/f.txt"), "f", StandardCharsets.UTF_8);
+            }
+            FileUtils.writeStringToFile(new File(baseDir, "d" + i + "/g.csv"), "g", StandardCharsets.UTF_8);
+        }
+        // a link to a parent directory is not followed around the loop
+        Files.createSymbolicLink(new File(baseDir, "d0/e0/loop").toPath(), baseDir.toPath());
+        List<String> expected = localFileConnector.getFiles(baseDir.getAbsolutePath(), "*.txt", true);
+        Collections.sort(expected);
+        LocalFileConnector parallelConnector = new LocalFileConnector();
+        Param param = new Param();
+        param.setConfig(new HashMap<>(Collections.singletonMap("listParallelism", "4")));
+        parallelConnector.initialize(param);
+        List<String> files = parallelConnector.getFiles(baseDir.getAbsolutePath(), "*.txt", true);
+        Collections.sort(files);
+        assertEquals(25, files.size());
+        assertEquals(expected, files);
+    }
+
+    @Test
+    public void testListFilesWithAttributes() throws Exception {
+        File file = new File(baseDir, "sub/a.txt");
+        FileUtils.writeStringToFile(file, "01234", StandardCharsets.UTF_8);
+        assertTrue(file.setLastModified(1700000000000L));
+        List<FileInfo> files = localFileConnector.listFiles(baseDir.getAbsolutePath(), null, true);
+        assertEquals(1, files.size());
+        assertEquals("sub" + File.separator + "a.txt", files.get(0).getPath());
+        assertEquals(5L, files.get(0).getSize());
+        assertEquals(1700000000000L, files.get(0).getModifiedTime());
+    }
+
+    @Test
+    public void testReadFileWithOffset() throws Exception {
+        File file = new File(baseDir, "ranged.txt");
+        FileUtils.writeStringToFile(file, "0123456789", StandardCharsets.UTF_8);
+        assertEquals(10L, localFileConnector.getFileSize(file.getAbsolutePath()));
+        try (InputStream inputStream = localFileConnector.readFile(file.getAbsolutePath(), 4L)) {
+            assertEquals("456789", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testGetFileInfo() throws Exception {
+        File file = new File(baseDir, "info.txt");
+        FileUtils.writeStringToFile(file, "0123456789", StandardCharsets.UTF_8);
+        assertTrue(file.setLastModified(1700000000000L));
+        FileInfo fileInfo = localFileConnector.getFileInfo(file.getAbsolutePath());
+        assertEquals(10L, fileInfo.getSize());
+        assertEquals(1700000000000L, fileInfo.getModifiedTime());
+        assertNull(localFileConnector.getFileInfo(new File(baseDir, "missing.txt").getAbsolutePath()));
+    }
+
+    @Test
+    public void testGetChecksum() throws Exception {
+        File file = new File(baseDir, "checksum.txt");
+        FileUtils.writeStringToFile(file, "123456789", StandardCharsets.UTF_8);
+        assertEquals("e3069283", localFileConnector.getChecksum(file.getAbsolutePath(), FileChecksum.CRC32C));
+        assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225",
+                localFileConnector.getChecksum(file.getAbsolutePath(), FileChecksum.SHA256));
+        assertNull(localFileConnector.getChecksum(new File(baseDir, "missing.txt").getAbsolutePath(), FileChecksum.CRC32C));
+    }
+
+    @Test
+    public void testRenameReplacesTarget() throws Exception {
+        File temp = new File(baseDir, ".target.txt.part");
+        File target = new File(baseDir, "target.txt");
+        FileUtils.writeStringToFile(temp, "new", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(target, "old content", StandardCharsets.UTF_8);
+        localFileConnector.rename(temp.getAbsolutePath(), target.getAbsolutePath());
+        assertEquals("new", FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+        assertFalse(temp.exists());
+    }
+
+    @Test
+    public void testPositionalWrite() throws Exception {
+        assertTrue(localFileConnector.supportsPositionalWrite());
+        String target = new File(baseDir, "positional.txt").getAbsolutePath();
+        // write the second half first, the first half must not truncate it
+        try (OutputStream outputStream = localFileConnector.writeFile(target, 5L)) {
+            outputStream.write("56789".getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream outputStream = localFileConnector.writeFile(target, 0L)) {
+            outputStream.write("01234".getBytes(StandardCharsets.UTF_8));
+        }
+        assertArrayEquals("0123456789".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(new File(target).toPath()));
+    }
+}
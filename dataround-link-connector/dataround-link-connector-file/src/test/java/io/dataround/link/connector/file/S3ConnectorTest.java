@@ -0,0 +1,206 @@
+package io.dataround.link.connector.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.AbortableOutputStream;
+import io.dataround.link.connector.FileInfo;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * S3Connector unit test, against an in memory S3 compatible server
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class S3ConnectorTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private FakeS3Server server;
+    private S3Connector s3Connector;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeS3Server("test", 2);
+        Param param = new Param();
+        param.setName("S3");
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+        param.getConfig().put("endpoint", server.getEndpoint());
+        param.getConfig().put("accessKey", "test");
+        param.getConfig().put("secretKey", "test");
+        param.getConfig().put("bucket", "test");
+        param.getConfig().put("pathStyleAccess", "true");
+        param.getConfig().put("partSizeMb", "5");
+        param.getConfig().put("uploadConcurrency", "2");
+        param.getConfig().put("downloadConcurrency", "3");
+        param.getConfig().put("rangeThresholdMb", "5");
+        s3Connector = new S3Connector();
+        s3Connector.initialize(param);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        s3Connector.close();
+        server.close();
+    }
+
+    @Test
+    public void testGetName() {
+        assertEquals("S3", s3Connector.getName());
+    }
+
+    @Test
+    public void testSmallObject() throws Exception {
+        try (OutputStream outputStream = s3Connector.writeFile("/data/small.txt")) {
+            outputStream.write("hello world".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(0, server.getUploadedParts());
+        assertEquals(11L, s3Connector.getFileInfo("/data/small.txt").getSize());
+        assertNull(s3Connector.getFileInfo("/data/missing.txt"));
+        try (InputStream inputStream = s3Connector.readFile("/data/small.txt", 6L)) {
+            assertEquals("world", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        }
+        assertTrue(s3Connector.testConnectivity());
+    }
+
+    @Test
+    public void testMultipartUploadAndRangedRead() throws Exception {
+        byte[] data = new byte[12 * MB + 123];
+        new Random(7).nextBytes(data);
+        try (OutputStream outputStream = s3Connector.writeFile("data/large.bin")) {
+            // writes smaller than a part
+            for (int offset = 0; offset < data.length; offset += 100_000) {
+                outputStream.write(data, offset, Math.min(100_000, data.length - offset));
+            }
+        }
+        assertEquals(3, server.getUploadedParts());
+        assertArrayEquals(data, server.getObject("data/large.bin"));
+        try (InputStream inputStream = s3Connector.readFile("data/large.bin")) {
+            assertArrayEquals(data, IOUtils.toByteArray(inputStream));
+        }
+        assertEquals(3, server.getRangedGets());
+    }
+
+    @Test
+    public void testFailedWriteKeepsObject() throws Exception {
+        byte[] previous = "previous".getBytes(StandardCharsets.UTF_8);
+        server.putObject("data/keep.bin", previous);
+        byte[] data = new byte[6 * MB];
+        new Random(7).nextBytes(data);
+        // the source fails after a part is uploaded, the writer aborts and closes quietly
+        OutputStream outputStream = s3Connector.writeFile("data/keep.bin");
+        try {
+            outputStream.write(data);
+            throw new IOException("source read failed");
+        } catch (IOException e) {
+            ((AbortableOutputStream) outputStream).abort();
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+        assertArrayEquals(previous, server.getObject("data/keep.bin"));
+        // an object smaller than a part is not put either
+        outputStream = s3Connector.writeFile("data/keep.bin");
+        outputStream.write(data, 0, 10);
+        ((AbortableOutputStream) outputStream).abort();
+        outputStream.close();
+        assertArrayEquals(previous, server.getObject("data/keep.bin"));
+    }
+
+    @Test
+    public void testResumeWrite() throws Exception {
+        byte[] previous = new byte[7 * MB];
+        new Random(1).nextBytes(previous);
+        server.putObject("data/resume.bin", previous);
+        byte[] rest = new byte[MB];
+        new Random(2).nextBytes(rest);
+        try (OutputStream outputStream = s3Connector.writeFile("data/resume.bin", 6L * MB)) {
+            outputStream.write(rest);
+        }
+        byte[] expected = Arrays.copyOf(previous, 7 * MB);
+        System.arraycopy(rest, 0, expected, 6 * MB, MB);
+        assertArrayEquals(expected, server.getObject("data/resume.bin"));
+    }
+
+    @Test
+    public void testListFilesPaginated() throws Exception {
+        byte[] data = "1".getBytes(StandardCharsets.UTF_8);
+        server.putObject("logs/a.log", data);
+        server.putObject("logs/b.log", data);
+        server.putObject("logs/c.txt", data);
+        server.putObject("logs/sub/", new byte[0]);
+        server.putObject("logs/sub/d.log", data);
+        server.putObject("other/e.log", data);
+        List<FileInfo> files = s3Connector.listFiles("/logs", "*.log", true);
+        assertEquals(Arrays.asList("a.log", "b.log", "sub/d.log"),
+                files.stream().map(FileInfo::getPath).collect(Collectors.toList()));
+        assertEquals(1L, files.get(0).getSize());
+        assertTrue(server.getListRequests() >= 3);
+        assertEquals(Arrays.asList("a.log", "b.log", "c.txt"), s3Connector.getFiles("logs/"));
+    }
+
+    @Test
+    public void testRename() throws Exception {
+        server.putObject("data/.a.txt.part", "new".getBytes(StandardCharsets.UTF_8));
+        server.putObject("data/a.txt", "old".getBytes(StandardCharsets.UTF_8));
+        s3Connector.rename("/data/.a.txt.part", "/data/a.txt");
+        assertEquals("new", new String(server.getObject("data/a.txt"), StandardCharsets.UTF_8));
+        assertNull(server.getObject("data/.a.txt.part"));
+    }
+
+    @Test
+    public void testCopyOnServer() throws Exception {
+        server.putObject("data/a.txt", "abc".getBytes(StandardCharsets.UTF_8));
+        S3Connector target = new S3Connector();
+        target.initialize(s3Connector.getParam());
+        assertTrue(s3Connector.copyTo(target, "/data/a.txt", "/backup/a.txt"));
+        assertEquals("abc", new String(server.getObject("backup/a.txt"), StandardCharsets.UTF_8));
+        target.close();
+
+        // other credentials may not read the source bucket, the file is streamed
+        Param other = new Param();
+        other.setConfig(new HashMap<>(s3Connector.getParam().getConfig()));
+        other.getConfig().put("accessKey", "other");
+        S3Connector otherTarget = new S3Connector();
+        otherTarget.initialize(other);
+        assertFalse(s3Connector.copyTo(otherTarget, "/data/a.txt", "/backup/b.txt"));
+        assertNull(server.getObject("backup/b.txt"));
+        otherTarget.close();
+        assertFalse(s3Connector.copyTo(new LocalFileConnector(), "/data/a.txt", "/backup/b.txt"));
+    }
+
+    @Test
+    public void testToIOException() {
+        IOException transient503 = S3Connector.toIOException(S3Exception.builder().statusCode(503).build());
+        assertFalse(transient503 instanceof FileNotFoundException || transient503 instanceof AccessDeniedException);
+        assertTrue(S3Connector.toIOException(S3Exception.builder().statusCode(404).build())
+                instanceof FileNotFoundException);
+        assertTrue(S3Connector.toIOException(S3Exception.builder().statusCode(403).build())
+                instanceof AccessDeniedException);
+        IOException timeout = S3Connector.toIOException(SdkClientException.create("timed out"));
+        assertFalse(timeout instanceof FileNotFoundException || timeout instanceof AccessDeniedException);
+    }
+}
@@ -5,14 +5,39 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jcraft.jsch.ChannelSftp;
 
 import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.FileInfo;
 
 /**
  * SftpConnector unit test
@@ -22,9 +47,38 @@ import io.dataround.link.common.connector.Param;
  */
 public class SftpConnectorTest {
 
+    @ClassRule
+    public static TemporaryFolder serverFolder = new TemporaryFolder();
+
+    // embedded SFTP server, the home directory of the user is the root of its paths
+    private static SshServer sshServer;
+    private static Path homeDir;
+
     private SftpConnector sftpConnector;
     private Param param;
 
+    @BeforeClass
+    public static void startServer() throws IOException {
+        homeDir = serverFolder.newFolder("home").toPath();
+        SimpleGeneratorHostKeyProvider hostKeyProvider = new SimpleGeneratorHostKeyProvider(
+                serverFolder.newFolder("keys").toPath().resolve("hostkey.ser"));
+        hostKeyProvider.setAlgorithm(KeyUtils.EC_ALGORITHM);
+        hostKeyProvider.setKeySize(256);
+        sshServer = SshServer.setUpDefaultServer();
+        sshServer.setHost("127.0.0.1");
+        sshServer.setPort(0);
+        sshServer.setKeyPairProvider(hostKeyProvider);
+        sshServer.setPasswordAuthenticator((user, password, session) -> "test".equals(user) && "test".equals(password));
+        sshServer.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        sshServer.setFileSystemFactory(new VirtualFileSystemFactory(homeDir));
+        sshServer.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        sshServer.stop(true);
+    }
+
     @Before
     public void setUp() {
         sftpConnector = new SftpConnector();
@@ -171,4 +225,105 @@ public class SftpConnectorTest {
             }
         }
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testListFilesRelativeToDirectory() throws Exception {
+        writeFile("relative/a.txt", "a");
+        writeFile("relative/sub/b.csv", "bb");
+        writeFile("relative/sub/deeper/c.txt", "ccc");
+        SftpConnector connector = localConnector(Collections.emptyMap());
+        Set<String> expected = new HashSet<>(Arrays.asList("a.txt", "sub/b.csv", "sub/deeper/c.txt"));
+        // the directory is resolved by the server, the paths are relative to it whatever its form
+        assertEquals(expected, new HashSet<>(connector.getFiles("relative", null, true)));
+        assertEquals(expected, new HashSet<>(connector.getFiles("/relative/", null, true)));
+        assertEquals(new HashSet<>(Arrays.asList("a.txt", "sub/deeper/c.txt")),
+                new HashSet<>(connector.getFiles("relative", "*.txt", true)));
+        assertEquals(Collections.singletonList("a.txt"), connector.getFiles("relative", null, false));
+
+        Map<String, FileInfo> files = connector.listFiles("relative", null, true).stream()
+                .collect(Collectors.toMap(FileInfo::getPath, file -> file));
+        assertEquals(3L, files.get("sub/deeper/c.txt").getSize());
+        assertFalse(files.get("sub/deeper/c.txt").isDirectory());
+        connector.close();
+    }
+
+    @Test
+    public void testListFilesOfHomeDirectory() throws Exception {
+        writeFile("home.txt", "home");
+        SftpConnector connector = localConnector(Collections.emptyMap());
+        // the home directory resolves to the root of the server
+        assertTrue(connector.getFiles("", null, false).contains("home.txt"));
+        assertTrue(connector.getFiles("/", null, false).contains("home.txt"));
+        connector.close();
+    }
+
+    @Test
+    public void testListFilesOfMissingDirectory() throws Exception {
+        SftpConnector connector = localConnector(Collections.emptyMap());
+        assertTrue(connector.getFiles("missing", null, true).isEmpty());
+        connector.close();
+    }
+
+    @Test
+    public void testListFilesWithHelpers() throws Exception {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 3; j++) {
+                String file = "dir" + i + "/sub/file" + j + ".txt";
+                writeFile("walk/" + file, file);
+                expected.add(file);
+            }
+        }
+        // the helpers of the walk read the directories on their own channels
+        for (String parallelism : Arrays.asList("1", "4")) {
+            SftpConnector connector = localConnector(Collections.singletonMap("listParallelism", parallelism));
+            List<String> files = connector.getFiles("walk", null, true);
+            assertEquals(expected.size(), files.size());
+            assertEquals(expected, new HashSet<>(files));
+            connector.close();
+        }
+    }
+
+    @Test
+    public void testBulkRequests() throws Exception {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        Files.createDirectories(homeDir.resolve("bulk"));
+        Files.write(homeDir.resolve("bulk/data.bin"), data);
+        int offset = 1024 * 1024 + 5;
+        for (int bulkRequests : new int[] {1, 64}) {
+            SftpConnector connector = localConnector(
+                    Collections.singletonMap("bulkRequests", String.valueOf(bulkRequests)));
+            try (InputStream in = connector.readFile("/bulk/data.bin")) {
+                assertTrue(Arrays.equals(data, IOUtils.toByteArray(in)));
+            }
+            try (InputStream in = connector.readFile("/bulk/data.bin", offset)) {
+                assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset, data.length), IOUtils.toByteArray(in)));
+            }
+            // the channels of the walk helpers are opened the same way as the one of the connector
+            ChannelSftp channel = connector.openChannel();
+            assertEquals(bulkRequests, channel.getBulkRequests());
+            channel.disconnect();
+            connector.close();
+        }
+    }
+
+    private SftpConnector localConnector(Map<String, String> config) {
+        Param localParam = new Param();
+        localParam.setHost("127.0.0.1");
+        localParam.setPort(sshServer.getPort());
+        localParam.setUser("test");
+        localParam.setPassword("test");
+        localParam.setConfig(new HashMap<>(config));
+        localParam.getConfig().put("strictHostKeyChecking", "false");
+        SftpConnector connector = new SftpConnector();
+        connector.initialize(localParam);
+        return connector;
+    }
+
+    private static void writeFile(String path, String content) throws IOException {
+        Path file = homeDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
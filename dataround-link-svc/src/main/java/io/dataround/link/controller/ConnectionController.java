@@ -55,6 +55,7 @@ import io.dataround.link.entity.dto.ConnectorDto;
 import io.dataround.link.entity.vo.ConnectionVo;
 import io.dataround.link.service.ConnectionService;
 import io.dataround.link.service.ConnectorService;
+import io.dataround.link.service.FileSyncService;
 import io.dataround.link.service.UserService;
 import io.dataround.link.service.VirtualTableService;
 import io.dataround.link.service.HazelcastCacheService;
@@ -83,6 +84,8 @@ public class ConnectionController extends BaseController {
     private UserService userService;
     @Autowired
     private HazelcastCacheService cacheService;
+    @Autowired
+    private FileSyncService fileSyncService;
 
     @GetMapping("/{id}")
     public Result<ConnectionVo> getById(@PathVariable Long id) {
@@ -123,6 +126,10 @@ public class ConnectionController extends BaseController {
         ConnectorDto connectorDto = connectorService.getConnectorDto(connectionVo.getConnector(), connectionVo.getConnectorVersionId());  
         Connection connection = connectionVo.buildConnection(connectorDto, getCurrentUserId(), getCurrentProjectId());
         boolean bool = connectionService.saveOrUpdate(connection);
+        if (connectionVo.getId() != null) {
+            // file syncs running on the connection follow its new bandwidth limit
+            fileSyncService.updateConnectionBandwidthLimit(connection);
+        }
         return Result.success(bool);
     }
 
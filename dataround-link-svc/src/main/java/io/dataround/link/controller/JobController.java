@@ -36,6 +36,9 @@ import io.dataround.link.entity.req.JobReq;
 import io.dataround.link.entity.res.JobRes;
 import io.dataround.link.quartz.SchedulerService;
 import io.dataround.link.service.ConnectionService;
+import io.dataround.link.service.FileSyncCheckpointService;
+import io.dataround.link.service.FileSyncFileService;
+import io.dataround.link.service.FileSyncService;
 import io.dataround.link.service.JobService;
 import io.dataround.link.service.JobInstanceService;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -82,6 +85,12 @@ public class JobController extends BaseController {
     private ConnectionService connectionService;
     @Autowired
     private UserService userService;
+    @Autowired
+    private FileSyncService fileSyncService;
+    @Autowired
+    private FileSyncFileService fileSyncFileService;
+    @Autowired
+    private FileSyncCheckpointService fileSyncCheckpointService;
 
 
     @GetMapping("/list")
@@ -173,6 +182,10 @@ public class JobController extends BaseController {
         job.setConfig(configMap);
         boolean bool = jobService.saveOrUpdate(job);
         schedulerService.scheduleJob(job);
+        if (id != null) {
+            // running file sync instances follow the new limit, other jobs have none
+            fileSyncService.updateJobBandwidthLimit(id, jobVo.getBandwidthLimitMb());
+        }
         return Result.success(bool);
     }
 
@@ -193,6 +206,8 @@ public class JobController extends BaseController {
         }
         log.info("delete Job id:{}", id);
         boolean bool = jobService.removeById(id);
+        fileSyncFileService.removeByJobId(id);
+        fileSyncCheckpointService.removeByJobId(id);
         return Result.success(bool);
     }
 
@@ -33,6 +33,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -40,12 +41,15 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.dataround.link.common.Result;
 import io.dataround.link.common.entity.res.UserResponse;
 import io.dataround.link.common.controller.BaseController;
+import io.dataround.link.entity.FileSyncFile;
 import io.dataround.link.entity.Job;
 import io.dataround.link.entity.JobInstance;
 import io.dataround.link.entity.req.JobInstanceReq;
 import io.dataround.link.entity.res.JobInstanceRes;
+import io.dataround.link.service.FileSyncFileService;
 import io.dataround.link.service.JobInstanceService;
 import io.dataround.link.service.JobService;
+import io.swagger.v3.oas.annotations.Parameter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -65,6 +69,9 @@ public class JobInstanceController extends BaseController {
     @Autowired
     private JobInstanceService jobInstanceService;
 
+    @Autowired
+    private FileSyncFileService fileSyncFileService;
+
     @PostMapping("/list")
     public Result<Page<JobInstanceRes>> list(@RequestBody JobInstanceReq request) {
         request.setProjectId(getCurrentProjectId());
@@ -99,6 +106,15 @@ public class JobInstanceController extends BaseController {
         return Result.success(instance);
     }
 
+    /**
+     * Files transferred or failed by a file sync instance, filtered by status if given
+     */
+    @GetMapping("/{id}/files")
+    public Result<Page<FileSyncFile>> listFiles(@PathVariable Long id, @RequestParam(required = false) Integer status,
+            @Parameter(hidden = true) Page<FileSyncFile> params) {
+        return Result.success(fileSyncFileService.selectPage(id, status, params));
+    }
+
     @PostMapping("/saveOrUpdate")
     public Result<Boolean> saveOrUpdate(@RequestBody JobInstance instance) {
         UserResponse currentUser = getCurrentUser();
@@ -118,6 +134,7 @@ public class JobInstanceController extends BaseController {
         UserResponse currentUser = getCurrentUser();
         log.info("user {} delete jobInstance id:{}", currentUser.getUserId(), id);
         boolean bool = jobInstanceService.removeById(id);
+        fileSyncFileService.removeByInstanceId(id);
         return Result.success(bool);
     }
 
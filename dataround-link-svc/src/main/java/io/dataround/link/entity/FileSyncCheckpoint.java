@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.dataround.link.entity;
+
+import java.util.Date;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import lombok.Data;
+
+/**
+ * Entity class representing the transfer progress of one file of a file sync job.
+ * A failed or cancelled instance leaves its checkpoints, the next instance of the job
+ * skips the finished files and resumes the others from the committed bytes.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Data
+@TableName("file_sync_checkpoint")
+public class FileSyncCheckpoint {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long jobId;
+    // the instance which wrote the checkpoint last
+    private Long instanceId;
+    // path relative to the job source path
+    private String filePath;
+    // index of the target in the targets of the job, 0 for the first one
+    private Integer targetIndex;
+    // connection and path of the target, a checkpoint of another target at the same index does not apply
+    private Long targetConnId;
+    private String targetPath;
+    // size and modified time of the source file when the transfer started
+    private Long sourceSize;
+    private Long sourceMtime;
+    private Long committedBytes;
+    // 1:in_progress, 2:done
+    private Integer status;
+    private Date updateTime;
+}
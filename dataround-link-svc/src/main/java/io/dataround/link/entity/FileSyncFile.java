@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.entity;
+
+import java.util.Date;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import lombok.Data;
+
+/**
+ * Entity class representing the result of one file transferred by a file sync job instance.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Data
+@TableName("file_sync_file")
+public class FileSyncFile {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long jobId;
+    private Long instanceId;
+    // path relative to the job source path
+    private String filePath;
+    // index of the target in the targets of the job, 0 for the first one
+    private Integer targetIndex;
+    private Long fileSize;
+    // CRC32C of the transferred bytes in hex, empty when the bytes were not seen by the service
+    private String checksum;
+    // 1:success, 2:failed
+    private Integer status;
+    private String message;
+    private Date createTime;
+}
@@ -50,6 +50,8 @@ public class JobInstance {
     private Double writeQps;
     private Long readBytes;
     private Long writeBytes;
+    // bytes of the files before compression or after decompression of a file sync
+    private Long rawBytes;
     private String logContent;
     private Long updateBy;
     private Date updateTime;
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.entity.enums;
+
+/**
+ * Compression applied by a file sync job to the files it transfers
+ * @author yuehan124@gmail.com
+ * @since 2026-10-18
+ */
+public enum FileSyncCompressionEnum {
+    // GZIP writes file.gz on the target, GUNZIP writes the content of a source file.gz as file
+    NONE(0, "NONE"), GZIP(1, "GZIP"), GUNZIP(2, "GUNZIP");
+
+    private final int code;
+    private final String description;
+
+    FileSyncCompressionEnum(int code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Compression of the code, NONE for null.
+     */
+    public static FileSyncCompressionEnum getByCode(Integer code) {
+        if (code == null) {
+            return NONE;
+        }
+        for (FileSyncCompressionEnum compression : FileSyncCompressionEnum.values()) {
+            if (compression.getCode() == code) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Invalid file sync compression code: " + code);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.entity.res;
+
+import lombok.Data;
+
+/**
+ * Value object for one more target of a file sync job, the files read once from the source
+ * are written to it besides the target of the job.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Data
+public class FileSyncTarget {
+
+    private Long targetConnId;
+    private String targetPath;
+}
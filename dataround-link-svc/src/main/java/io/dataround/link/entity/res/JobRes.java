@@ -50,5 +50,25 @@ public class JobRes extends Job {
     private String sourcePath;
     private String targetPath;
     private String filePattern;
+    // 0:none, 1:gzip the files, 2:gunzip the .gz files, see FileSyncCompressionEnum
+    private Integer compression;
     private Boolean includeSubdirectories;
+    // only transfer files missing on the target or changed since they were copied
+    private Boolean incremental;
+    // share of the file sync workers when several jobs run at the same time, 1 by default
+    private Integer priority;
+    // bandwidth of all the transfers of the job in MB/s, empty or 0 for no limit
+    private Integer bandwidthLimitMb;
+    // compare the checksum of every transferred file with the target, mismatches are transferred again
+    private Boolean verifyChecksum;
+    // write the files to hidden temporary names and rename them once complete
+    private Boolean atomicWrite;
+    // update the existing target files in place, writing only the blocks changed on the source
+    private Boolean deltaTransfer;
+    // transfer the largest files first, so that no large file runs alone at the end
+    private Boolean largestFirst;
+    // keep the instance running after the first sync, transferring the files added or changed on the source
+    private Boolean continuous;
+    // more targets the files are replicated to, each file is read once from the source for all of them
+    private List<FileSyncTarget> extraTargets;
 }
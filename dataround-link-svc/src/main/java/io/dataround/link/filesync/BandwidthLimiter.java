@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the bytes per second of the transfers sharing it, the rate can
+ * be changed while the transfers are running.
+ * <p>
+ * A transfer reserves the bytes it is about to move and waits for the returned delay.
+ * The bucket may go into debt, so the transfers reserving after it wait for the debt
+ * to be paid back first and share the rate in arrival order. The bucket holds at most
+ * one second of tokens.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class BandwidthLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // bytes per second, 0 for no limit
+    private volatile long rate;
+    // guarded by this
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public BandwidthLimiter(long rate) {
+        setRate(rate);
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * Change the rate, the tokens earned so far are kept.
+     *
+     * @param rate bytes per second, 0 or less for no limit
+     */
+    public synchronized void setRate(long rate) {
+        refill();
+        this.rate = Math.max(0L, rate);
+        // the debt of a limited rate is forgiven when the limit is removed
+        tokens = this.rate == 0 ? 0 : Math.min(tokens, this.rate);
+    }
+
+    public boolean isLimited() {
+        return rate > 0;
+    }
+
+    /**
+     * Reserve bytes of the bucket.
+     *
+     * @return nanoseconds to wait before moving the bytes
+     */
+    public long reserve(long bytes) {
+        if (rate <= 0) {
+            return 0L;
+        }
+        synchronized (this) {
+            long current = rate;
+            if (current <= 0) {
+                return 0L;
+            }
+            refill();
+            tokens -= bytes;
+            return tokens >= 0 ? 0L : (long) (-tokens * NANOS_PER_SECOND / current);
+        }
+    }
+
+    /**
+     * Reserve bytes of the bucket and wait until they may be moved.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate > 0) {
+            tokens = Math.min(rate, tokens + (double) (now - lastRefill) * rate / NANOS_PER_SECOND);
+        }
+        lastRefill = now;
+    }
+}
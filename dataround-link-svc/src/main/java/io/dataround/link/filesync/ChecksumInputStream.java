@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.dataround.link.connector.FileChecksum;
+
+/**
+ * Input stream computing checksums of the bytes read through it, so that a file is hashed
+ * while it is transferred instead of being read again afterwards.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class ChecksumInputStream extends FilterInputStream {
+
+    private final List<FileChecksum> checksums;
+
+    public ChecksumInputStream(InputStream in, List<FileChecksum> checksums) {
+        super(in);
+        this.checksums = checksums;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            byte[] single = {(byte) b};
+            for (FileChecksum checksum : checksums) {
+                checksum.update(single, 0, 1);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytesRead = in.read(b, off, len);
+        if (bytesRead > 0) {
+            for (FileChecksum checksum : checksums) {
+                checksum.update(b, off, bytesRead);
+            }
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping would leave bytes out of the checksum");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Checksums of the bytes read so far, by algorithm.
+     */
+    public Map<String, String> getValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (FileChecksum checksum : checksums) {
+            values.put(checksum.getAlgorithm(), checksum.getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.io.IOUtils;
+
+import io.dataround.link.common.connector.Param;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transfer one large file as fixed size chunks read in parallel with ranged reads.
+ * <p>
+ * The thread calling execute() works on the chunks itself and submits helpers which
+ * claim the remaining chunks, so it never waits for a chunk that no thread has started
+ * and a busy executor can not dead lock it. Targets supporting positional writes get
+ * every chunk written at its offset, other targets get the chunks assembled in order
+ * through one stream, with at most parallelism chunks buffered in memory.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class ChunkedTransfer {
+
+    private final FileSyncContext context;
+    private final FileConnectorPool connectorPool;
+    private final Param targetParam;
+    private final String srcFile;
+    private final String targetFile;
+    private final long fileSize;
+    private final long chunkSize;
+    private final int chunkCount;
+    private final int parallelism;
+
+    // claim state, guarded by this
+    private int claimed = 0;
+    private int finished = 0;
+    private boolean stopped = false;
+    private Throwable failure;
+
+    // ordered assembly state, guarded by this
+    private boolean positional;
+    private OutputStream assemblyStream;
+    private int nextToWrite = 0;
+    // a worker is writing the chunks in order
+    private boolean assembling = false;
+    private final Map<Integer, byte[]> pendingChunks = new HashMap<>();
+
+    /**
+     * @param targetParam the target of the job the file is written to
+     */
+    public ChunkedTransfer(FileSyncContext context, FileConnectorPool connectorPool, Param targetParam,
+            String srcFile, String targetFile, long fileSize, long chunkSize, int parallelism) {
+        this.context = context;
+        this.connectorPool = connectorPool;
+        this.targetParam = targetParam;
+        this.srcFile = srcFile;
+        this.targetFile = targetFile;
+        this.fileSize = fileSize;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        this.parallelism = Math.max(1, Math.min(parallelism, chunkCount));
+    }
+
+    /**
+     * Transfer the file, return after all the chunks are written.
+     *
+     * @param executor executor running the helper workers, the lane of the instance so that the
+     *                 helpers count in its share of the workers
+     */
+    public void execute(Executor executor) throws Exception {
+        log.debug("start to sync file in {} chunks: {} -> {}", chunkCount, srcFile, targetFile);
+        FileConnectorPool.Lease tgtLease = connectorPool.borrow(targetParam);
+        try {
+            positional = tgtLease.get().supportsPositionalWrite();
+            if (positional) {
+                // create or truncate the target, chunks are written into it at their offsets
+                tgtLease.get().writeFile(targetFile).close();
+                // the workers write with their own leases and invalidate them on failure
+                tgtLease.close();
+                tgtLease = null;
+            } else {
+                assemblyStream = tgtLease.get().writeFile(targetFile);
+            }
+            try {
+                for (int i = 1; i < parallelism; i++) {
+                    executor.execute(this::work);
+                }
+            } catch (RejectedExecutionException e) {
+                // the lane is closed, the chunks are transferred by the helpers already submitted
+                log.debug("no more helpers for file: {}", srcFile);
+            }
+            work();
+            awaitWorkers();
+            if (assemblyStream != null) {
+                assemblyStream.close();
+            }
+        } catch (Exception e) {
+            // the chunks assembled so far must not replace the target
+            FileCodec.abort(assemblyStream);
+            if (tgtLease != null) {
+                tgtLease.invalidate();
+            }
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(assemblyStream);
+            if (tgtLease != null) {
+                tgtLease.close();
+            }
+        }
+    }
+
+    private void work() {
+        int index;
+        while ((index = claim()) >= 0) {
+            try {
+                transferChunk(index);
+            } catch (Throwable e) {
+                synchronized (this) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    stopped = true;
+                }
+            } finally {
+                synchronized (this) {
+                    finished++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim the next chunk, or return -1 when there is nothing left to do. In ordered
+     * assembly the claim waits until the chunk fits the buffering window, the chunks it
+     * waits for are already claimed by running workers.
+     */
+    private synchronized int claim() {
+        while (true) {
+            if (stopped || claimed >= chunkCount) {
+                return -1;
+            }
+            if (context.isCancelled()) {
+                stopped = true;
+                return -1;
+            }
+            if (positional || claimed < nextToWrite + parallelism) {
+                return claimed++;
+            }
+            try {
+                wait(1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                return -1;
+            }
+        }
+    }
+
+    private synchronized void awaitWorkers() throws Exception {
+        while (finished < claimed || (!stopped && claimed < chunkCount)) {
+            wait(1000L);
+        }
+        if (failure != null) {
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            throw new RuntimeException(failure);
+        }
+        if (finished < chunkCount) {
+            log.info("File sync cancelled for file: {} -> {}", srcFile, targetFile);
+            throw new InterruptedException("File sync cancelled");
+        }
+    }
+
+    private void transferChunk(int index) throws Exception {
+        long offset = index * chunkSize;
+        int length = (int) Math.min(chunkSize, fileSize - offset);
+        try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam())) {
+            InputStream inputStream = null;
+            try {
+                inputStream = srcLease.get().readFile(srcFile, offset);
+                if (positional) {
+                    writeChunk(inputStream, offset, length);
+                } else {
+                    byte[] data = new byte[length];
+                    readFully(inputStream, data);
+                    context.getReadBytes().add(length);
+                    assemble(index, data);
+                }
+                inputStream.close();
+            } catch (Exception e) {
+                srcLease.invalidate();
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+    }
+
+    private void writeChunk(InputStream inputStream, long offset, int length) throws Exception {
+        try (FileConnectorPool.Lease tgtLease = connectorPool.borrow(targetParam)) {
+            OutputStream outputStream = null;
+            try {
+                outputStream = tgtLease.get().writeFile(targetFile, offset);
+                byte[] buffer = new byte[context.getBufferSize()];
+                int remaining = length;
+                while (remaining > 0) {
+                    if (context.isCancelled()) {
+                        throw new InterruptedException("File sync cancelled");
+                    }
+                    int bytesRead = inputStream.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (bytesRead == -1) {
+                        throw new EOFException("Unexpected end of file " + srcFile + " at offset " + (offset + length - remaining));
+                    }
+                    context.getReadBytes().add(bytesRead);
+                    context.throttle(bytesRead);
+                    outputStream.write(buffer, 0, bytesRead);
+                    context.getWriteBytes().add(bytesRead);
+                    context.getRawBytes().add(bytesRead);
+                    remaining -= bytesRead;
+                }
+                outputStream.close();
+            } catch (Exception e) {
+                tgtLease.invalidate();
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+        }
+    }
+
+    private void readFully(InputStream inputStream, byte[] data) throws Exception {
+        int read = 0;
+        while (read < data.length) {
+            if (context.isCancelled()) {
+                throw new InterruptedException("File sync cancelled");
+            }
+            int bytesRead = inputStream.read(data, read, Math.min(context.getBufferSize(), data.length - read));
+            if (bytesRead == -1) {
+                throw new EOFException("Unexpected end of file " + srcFile);
+            }
+            context.throttle(bytesRead);
+            read += bytesRead;
+        }
+    }
+
+    /**
+     * Write the chunk if it is the next one of the file, together with the buffered chunks
+     * following it, otherwise keep it until the chunks before it arrive. One worker writes at
+     * a time, outside of the lock, the others buffer their chunks and go on reading.
+     */
+    private void assemble(int index, byte[] data) throws IOException {
+        byte[] next;
+        synchronized (this) {
+            pendingChunks.put(index, data);
+            if (assembling) {
+                // the writing worker takes the chunk once it is the next one
+                return;
+            }
+            next = pendingChunks.remove(nextToWrite);
+            if (next == null) {
+                return;
+            }
+            assembling = true;
+        }
+        try {
+            while (next != null) {
+                assemblyStream.write(next);
+                context.getWriteBytes().add(next.length);
+                context.getRawBytes().add(next.length);
+                synchronized (this) {
+                    nextToWrite++;
+                    notifyAll();
+                    next = pendingChunks.remove(nextToWrite);
+                    if (next == null) {
+                        assembling = false;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                assembling = false;
+            }
+            throw e;
+        }
+    }
+}
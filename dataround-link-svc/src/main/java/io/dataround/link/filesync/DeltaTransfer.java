@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.io.IOUtils;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileChecksum;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Update an existing target file in place, writing only the blocks which differ from the source.
+ * <p>
+ * The SHA-256 checksums of the blocks of the target are computed by its server when the connector
+ * can, otherwise by reading the target if it is a local file. A remote target read back would
+ * cost as much as a copy, the file is transferred the usual way instead. The source is then read
+ * once and each of its blocks is compared with the block of the target at the same offset only.
+ * <p>
+ * There is no rolling checksum: a block is never looked for at another offset of the target.
+ * Content shifted by an insertion or a deletion, as in a dump with rows added in the middle, does
+ * not match any more from that point and the rest of the file is sent in full. Only files changed
+ * in place or appended to gain from the delta transfer.
+ * <p>
+ * The bytes before the position reported to the committer match the source, a transfer failing
+ * halfway is resumed from there.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class DeltaTransfer {
+
+    private final FileSyncContext context;
+    private final FileConnectorPool connectorPool;
+    private final Param targetParam;
+    private final String srcFile;
+    private final String targetFile;
+    private final long fileSize;
+    private final int blockSize;
+    // checksums of the whole source file computed on the way
+    private final List<FileChecksum> checksums;
+    private Map<String, String> checksumValues = Collections.emptyMap();
+
+    public DeltaTransfer(FileSyncContext context, FileConnectorPool connectorPool, Param targetParam, String srcFile,
+            String targetFile, long fileSize, int blockSize, List<FileChecksum> checksums) {
+        this.context = context;
+        this.connectorPool = connectorPool;
+        this.targetParam = targetParam;
+        this.srcFile = srcFile;
+        this.targetFile = targetFile;
+        this.fileSize = fileSize;
+        this.blockSize = blockSize;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Whether the connector writes at an offset of an existing file without truncating it.
+     */
+    public static boolean isPatchable(Param targetParam) {
+        return ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(targetParam.getName())
+                || ConnectorNameConstants.SFTP.equalsIgnoreCase(targetParam.getName());
+    }
+
+    /**
+     * Patch the target file.
+     *
+     * @param committer called with the position up to which the target matches the source
+     * @param interval  bytes between two calls of the committer
+     * @return false if there is no target file smaller than the source to patch, or the checksums of
+     *         its blocks can not be computed without reading a remote target, nothing is written
+     */
+    public boolean execute(LongConsumer committer, long interval) throws Exception {
+        try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam());
+            FileConnectorPool.Lease tgtLease = connectorPool.borrow(targetParam)) {
+            InputStream inputStream = null;
+            OutputStream outputStream = null;
+            try {
+                FileInfo targetInfo = tgtLease.get().getFileInfo(targetFile);
+                // the connectors can not truncate a file, a longer target is replaced
+                if (targetInfo == null || targetInfo.getSize() == 0L || targetInfo.getSize() > fileSize) {
+                    return false;
+                }
+                List<String> blocks = getBlockChecksums(tgtLease.get(), targetInfo.getSize());
+                if (blocks == null) {
+                    log.debug("no block checksums of the target, the file is transferred whole: {} -> {}", srcFile,
+                            targetFile);
+                    return false;
+                }
+                log.debug("start to patch file with {} blocks of the target: {} -> {}", blocks.size(), srcFile,
+                        targetFile);
+                ChecksumInputStream checksumStream = new ChecksumInputStream(
+                        FileCodec.metered(srcLease.get().readFile(srcFile), context.getReadBytes()), checksums);
+                inputStream = checksumStream;
+                byte[] block = new byte[blockSize];
+                long position = 0L;
+                long committed = 0L;
+                long written = 0L;
+                for (int index = 0; position < fileSize; index++) {
+                    int length = (int) Math.min(blockSize, fileSize - position);
+                    readFully(inputStream, block, length);
+                    context.getRawBytes().add(length);
+                    if (index < blocks.size() && blocks.get(index).equals(checksum(block, length))) {
+                        // the next changed block opens its own write
+                        if (outputStream != null) {
+                            outputStream.close();
+                            outputStream = null;
+                        }
+                    } else {
+                        if (outputStream == null) {
+                            outputStream = FileCodec.metered(tgtLease.get().writeFile(targetFile, position),
+                                    context.getWriteBytes());
+                        }
+                        outputStream.write(block, 0, length);
+                        written += length;
+                    }
+                    position += length;
+                    if (position - committed >= interval) {
+                        if (outputStream != null) {
+                            outputStream.flush();
+                        }
+                        committer.accept(position);
+                        committed = position;
+                    }
+                }
+                if (outputStream != null) {
+                    outputStream.close();
+                }
+                inputStream.close();
+                checksumValues = checksumStream.getValues();
+                if (written == 0L) {
+                    // an unchanged target keeps its old modified time, the incremental listing would select it again
+                    tgtLease.get().setModifiedTime(targetFile, System.currentTimeMillis());
+                }
+                log.debug("patched file with {} of {} bytes written: {} -> {}", written, fileSize, srcFile, targetFile);
+                return true;
+            } catch (Exception e) {
+                srcLease.invalidate();
+                tgtLease.invalidate();
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+                IOUtils.closeQuietly(outputStream);
+            }
+        }
+    }
+
+    /**
+     * Checksums of the whole source file, by algorithm, after the file is patched.
+     */
+    public Map<String, String> getChecksums() {
+        return checksumValues;
+    }
+
+    /**
+     * Checksums of the blocks of the target, a local target is read when its connector does not
+     * compute them.
+     *
+     * @return null if the server of a remote target can not compute them
+     */
+    private List<String> getBlockChecksums(FileConnector connector, long targetSize) throws Exception {
+        int count = (int) ((targetSize + blockSize - 1) / blockSize);
+        List<String> blocks = connector.getBlockChecksums(targetFile, blockSize, FileChecksum.SHA256);
+        if (blocks != null && blocks.size() == count) {
+            return blocks;
+        }
+        if (!ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(targetParam.getName())) {
+            return null;
+        }
+        blocks = new ArrayList<>(count);
+        try (InputStream inputStream = FileCodec.metered(connector.readFile(targetFile), context.getReadBytes())) {
+            byte[] block = new byte[blockSize];
+            long position = 0L;
+            while (position < targetSize) {
+                int length = (int) Math.min(blockSize, targetSize - position);
+                readFully(inputStream, block, length);
+                blocks.add(checksum(block, length));
+                position += length;
+            }
+        }
+        return blocks;
+    }
+
+    private void readFully(InputStream inputStream, byte[] data, int length) throws Exception {
+        int read = 0;
+        while (read < length) {
+            if (context.isCancelled()) {
+                log.info("File sync cancelled for file: {} -> {}", srcFile, targetFile);
+                throw new InterruptedException("File sync cancelled");
+            }
+            int bytesRead = inputStream.read(data, read, Math.min(context.getBufferSize(), length - read));
+            if (bytesRead == -1) {
+                throw new EOFException("Unexpected end of file while patching " + targetFile);
+            }
+            context.throttle(bytesRead);
+            read += bytesRead;
+        }
+    }
+
+    private static String checksum(byte[] data, int length) {
+        FileChecksum checksum = FileChecksum.of(FileChecksum.SHA256);
+        checksum.update(data, 0, length);
+        return checksum.getValue();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.dataround.link.common.connector.Param;
+
+/**
+ * Limits the transfers running at the same time against every endpoint, shared by all the
+ * job instances. A transfer holds a permit of its source and of each of its target endpoints, one
+ * permit per distinct endpoint. The permits are always taken in the order the endpoints were first
+ * seen, so two transfers between the same endpoints in opposite directions can not dead lock.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class EndpointLimiter {
+
+    private final int maxTransfersPerEndpoint;
+    private final Map<Param, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    public EndpointLimiter(int maxTransfersPerEndpoint) {
+        this.maxTransfersPerEndpoint = maxTransfersPerEndpoint;
+    }
+
+    /**
+     * Wait for a transfer slot of both endpoints.
+     *
+     * @return the permit to close when the transfer is done
+     */
+    public Permit acquire(Param source, Param target) throws InterruptedException {
+        return acquire(Arrays.asList(source, target));
+    }
+
+    /**
+     * Wait for a transfer slot of every endpoint, a file replicated to several targets holds
+     * a slot of the source and of each target.
+     *
+     * @return the permit to close when the transfer is done
+     */
+    public Permit acquire(Collection<Param> params) throws InterruptedException {
+        TreeMap<Long, Endpoint> ordered = new TreeMap<>();
+        for (Param param : params) {
+            Endpoint endpoint = endpoint(param);
+            ordered.put(endpoint.order, endpoint);
+        }
+        Permit permit = new Permit();
+        try {
+            for (Endpoint endpoint : ordered.values()) {
+                endpoint.semaphore.acquire();
+                permit.endpoints.add(endpoint);
+            }
+        } catch (InterruptedException e) {
+            permit.close();
+            throw e;
+        }
+        return permit;
+    }
+
+    public int getAvailable(Param param) {
+        return endpoint(param).semaphore.availablePermits();
+    }
+
+    private Endpoint endpoint(Param param) {
+        return endpoints.computeIfAbsent(param, k -> new Endpoint(sequence.incrementAndGet(), maxTransfersPerEndpoint));
+    }
+
+    private static class Endpoint {
+        private final long order;
+        private final Semaphore semaphore;
+
+        Endpoint(long order, int permits) {
+            this.order = order;
+            this.semaphore = new Semaphore(permits, true);
+        }
+    }
+
+    /**
+     * Transfer slots held on the endpoints of one transfer.
+     */
+    public static class Permit implements AutoCloseable {
+        private final List<Endpoint> endpoints = new ArrayList<>();
+
+        private Permit() {
+        }
+
+        @Override
+        public synchronized void close() {
+            // released in the reverse order of acquisition
+            for (int i = endpoints.size() - 1; i >= 0; i--) {
+                endpoints.get(i).semaphore.release();
+            }
+            endpoints.clear();
+        }
+    }
+}
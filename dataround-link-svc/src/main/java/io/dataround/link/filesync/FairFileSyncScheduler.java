@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Shares the file sync workers fairly between the running job instances.
+ * <p>
+ * Every instance queues its transfers in its own lane. The tasks given to the underlying
+ * executor are only tokens: a token runs the next transfer picked by weighted round robin
+ * over the lanes, a lane of weight w getting w transfers per round. A lane running its maximum
+ * number of transfers is skipped, the completion of one of its transfers hands a token back.
+ * A big job thus can not hold the workers while a small one waits behind it in the queue.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FairFileSyncScheduler {
+
+    private final Executor executor;
+    // lanes having queued transfers in round robin order, guarded by this
+    private final ArrayDeque<Lane> ring = new ArrayDeque<>();
+
+    public FairFileSyncScheduler(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Open the lane of a job instance.
+     *
+     * @param weight         transfers picked from the lane per round, at least 1
+     * @param maxConcurrency maximum transfers of the lane running at the same time, 0 for no limit
+     */
+    public Lane openLane(int weight, int maxConcurrency) {
+        return new Lane(Math.max(1, weight), maxConcurrency <= 0 ? Integer.MAX_VALUE : maxConcurrency);
+    }
+
+    private void runNext() {
+        Lane lane;
+        Runnable task;
+        synchronized (this) {
+            lane = pick();
+            if (lane == null) {
+                return;
+            }
+            task = lane.tasks.poll();
+            lane.running++;
+            if (lane.tasks.isEmpty()) {
+                lane.inRing = false;
+            } else if (--lane.credits > 0) {
+                // the lane keeps its turn until it has used its credits
+                ring.addFirst(lane);
+            } else {
+                lane.credits = lane.weight;
+                ring.addLast(lane);
+            }
+        }
+        try {
+            task.run();
+        } finally {
+            boolean pending;
+            synchronized (this) {
+                lane.running--;
+                pending = !ring.isEmpty();
+            }
+            if (pending) {
+                // a token may have found the lanes at their limit and left
+                executor.execute(this::runNext);
+            }
+        }
+    }
+
+    /**
+     * Remove the first lane of the ring below its concurrency limit, the lanes at their limit
+     * lose their turn.
+     */
+    private Lane pick() {
+        for (int i = 0, n = ring.size(); i < n; i++) {
+            Lane lane = ring.pollFirst();
+            if (lane.running < lane.maxConcurrency) {
+                return lane;
+            }
+            lane.credits = lane.weight;
+            ring.addLast(lane);
+        }
+        return null;
+    }
+
+    /**
+     * Transfers of one job instance, executed in turn with the other lanes.
+     */
+    public class Lane implements Executor {
+
+        private final int weight;
+        private final int maxConcurrency;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private int running = 0;
+        private int credits;
+        private boolean inRing = false;
+        private boolean closed = false;
+
+        private Lane(int weight, int maxConcurrency) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.credits = weight;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (FairFileSyncScheduler.this) {
+                if (closed) {
+                    throw new RejectedExecutionException("File sync lane is closed");
+                }
+                tasks.add(task);
+                if (!inRing) {
+                    inRing = true;
+                    credits = weight;
+                    ring.addLast(this);
+                }
+            }
+            executor.execute(FairFileSyncScheduler.this::runNext);
+        }
+
+        /**
+         * Close the lane, the transfers not started are dropped.
+         */
+        public void close() {
+            synchronized (FairFileSyncScheduler.this) {
+                closed = true;
+                tasks.clear();
+                ring.remove(this);
+                inRing = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Output stream writing the same bytes to several target streams, so that a file read once
+ * from the source is replicated to every target of the job.
+ * <p>
+ * Every buffer is written to the targets at the same time, one of them by the calling thread
+ * and the others on the executor, and the call returns once all of them have it, so the buffer
+ * can be reused right away. A target failing is closed and left out of the following writes,
+ * the others go on, the stream only fails once no target is left. Null streams are targets
+ * which failed before the copy started.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FanOutOutputStream extends OutputStream {
+
+    @FunctionalInterface
+    private interface Action {
+        void apply(OutputStream out) throws IOException;
+    }
+
+    private final List<OutputStream> targets;
+    private final Exception[] failures;
+    private final Executor executor;
+    private boolean closed = false;
+
+    /**
+     * @param targets  streams of the targets
+     * @param executor runs the writes of the targets beside the calling thread
+     */
+    public FanOutOutputStream(List<OutputStream> targets, Executor executor) {
+        this.targets = new ArrayList<>(targets);
+        this.failures = new Exception[targets.size()];
+        this.executor = executor;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        apply(out -> out.write(b));
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        apply(out -> out.write(b, off, len));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        apply(OutputStream::flush);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // a target whose last bytes are only sent by close fails here
+        apply(OutputStream::close);
+    }
+
+    /**
+     * Failure of the target, null while it receives the bytes.
+     */
+    public Exception getFailure(int index) {
+        return failures[index];
+    }
+
+    private void apply(Action action) throws IOException {
+        List<Integer> live = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            if (targets.get(i) != null) {
+                live.add(i);
+            }
+        }
+        if (live.isEmpty()) {
+            throw noTargetLeft();
+        }
+        List<FutureTask<Void>> tasks = new ArrayList<>(live.size() - 1);
+        for (int i = 1; i < live.size(); i++) {
+            int index = live.get(i);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                apply(index, action);
+                return null;
+            });
+            executor.execute(task);
+            tasks.add(task);
+        }
+        apply(live.get(0), action);
+        try {
+            for (FutureTask<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            // the buffer is reused by the caller, no target may still be writing it
+            for (int index : live) {
+                fail(index, e);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("File sync cancelled");
+        } catch (ExecutionException e) {
+            // apply(index, action) records the failures of the targets, it does not throw
+            throw new IOException(e.getCause());
+        }
+        for (int index : live) {
+            if (targets.get(index) != null) {
+                return;
+            }
+        }
+        throw noTargetLeft();
+    }
+
+    private void apply(int index, Action action) {
+        OutputStream out = targets.get(index);
+        try {
+            action.apply(out);
+        } catch (Exception e) {
+            fail(index, e);
+        }
+    }
+
+    private synchronized void fail(int index, Exception e) {
+        OutputStream out = targets.get(index);
+        if (out == null) {
+            return;
+        }
+        failures[index] = e;
+        targets.set(index, null);
+        IOUtils.closeQuietly(out);
+    }
+
+    private synchronized IOException noTargetLeft() {
+        IOException failure = null;
+        for (Exception e : failures) {
+            if (e == null) {
+                continue;
+            }
+            if (failure == null) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            } else if (failure != e) {
+                failure.addSuppressed(e);
+            }
+        }
+        return failure == null ? new IOException("No target left to write") : failure;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * Detect the files added or modified under the source directory of a continuous file sync.
+ * <p>
+ * A changed file is only reported once two observations one poll apart see the same size
+ * and modified time, so a file still being written on the source is not transferred half
+ * way. Deleted files are not reported, a file sync never deletes target files.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public abstract class FileChangeWatcher implements Closeable {
+
+    protected final FileSyncContext context;
+    protected final boolean recursive;
+    private final IOFileFilter fileFilter;
+    // files seen changing by path, reported once they stop changing
+    private final Map<String, FileInfo> pending = new HashMap<>();
+
+    protected FileChangeWatcher(FileSyncContext context, String filePattern, boolean recursive) {
+        this.context = context;
+        this.recursive = recursive;
+        this.fileFilter = filePattern == null || filePattern.trim().isEmpty() ? null
+                : WildcardFileFilter.builder().setWildcards(filePattern.trim()).get();
+    }
+
+    /**
+     * Watcher of the source directory of the instance, notified by the file system for a local
+     * directory, polling the directories of the other connectors.
+     */
+    public static FileChangeWatcher create(FileSyncContext context, String filePattern, boolean recursive)
+            throws Exception {
+        if (ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(context.getSourceParam().getName())) {
+            return new LocalFileWatcher(context, filePattern, recursive);
+        }
+        return new PollingFileWatcher(context, filePattern, recursive);
+    }
+
+    /**
+     * Wait for changes during the interval.
+     *
+     * @return the changed files which stopped changing, paths relative to the source directory
+     */
+    public List<FileInfo> poll(long intervalMillis) throws Exception {
+        Map<String, FileInfo> observed = new HashMap<>();
+        detectChanges(intervalMillis, file -> {
+            if (fileFilter == null || fileFilter.accept(null, getFileName(file.getPath()))) {
+                observed.put(file.getPath(), file);
+            }
+        });
+        // the files changing at the last poll are looked at again
+        for (String path : new ArrayList<>(pending.keySet())) {
+            if (!observed.containsKey(path)) {
+                FileInfo file = stat(path);
+                if (file == null) {
+                    pending.remove(path);
+                } else {
+                    observed.put(path, file);
+                }
+            }
+        }
+        List<FileInfo> changed = new ArrayList<>();
+        for (FileInfo file : observed.values()) {
+            FileInfo previous = pending.put(file.getPath(), file);
+            if (previous != null && previous.getSize() == file.getSize()
+                    && previous.getModifiedTime() == file.getModifiedTime()) {
+                pending.remove(file.getPath());
+                changed.add(file);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Wait for the interval, reporting the files which may have changed with their current
+     * size and modified time.
+     */
+    protected abstract void detectChanges(long intervalMillis, Consumer<FileInfo> changes) throws Exception;
+
+    /**
+     * Current size and modified time of a file, null if it is gone.
+     *
+     * @param path path relative to the source directory
+     */
+    protected abstract FileInfo stat(String path) throws Exception;
+
+    // local paths use the platform separator, the remote ones use '/'
+    private static String getFileName(String path) {
+        return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+    }
+}
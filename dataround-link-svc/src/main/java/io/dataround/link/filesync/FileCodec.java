@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+
+import io.dataround.link.connector.AbortableOutputStream;
+import io.dataround.link.entity.enums.FileSyncCompressionEnum;
+
+/**
+ * Compression stage of the streamed transfers, and the streams counting the bytes which
+ * cross the connectors, which differ from the bytes of the files once compressed.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileCodec {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private FileCodec() {
+    }
+
+    /**
+     * Name of the target file of a source file.
+     */
+    public static String getTargetName(FileSyncCompressionEnum compression, String file) {
+        switch (compression) {
+            case GZIP:
+                return file + GZIP_SUFFIX;
+            case GUNZIP:
+                return file.regionMatches(true, file.length() - GZIP_SUFFIX.length(), GZIP_SUFFIX, 0,
+                        GZIP_SUFFIX.length()) ? file.substring(0, file.length() - GZIP_SUFFIX.length()) : file;
+            default:
+                return file;
+        }
+    }
+
+    /**
+     * Source stream giving the bytes to write to the target.
+     */
+    public static InputStream wrapSource(FileSyncCompressionEnum compression, InputStream in, int bufferSize)
+            throws IOException {
+        return compression == FileSyncCompressionEnum.GUNZIP ? new GZIPInputStream(in, bufferSize) : in;
+    }
+
+    /**
+     * Target stream taking the bytes read from the source, closing it finishes the compressed file.
+     */
+    public static OutputStream wrapTarget(FileSyncCompressionEnum compression, OutputStream out, int bufferSize)
+            throws IOException {
+        return compression == FileSyncCompressionEnum.GZIP ? new GZIPOutputStream(out, bufferSize) : out;
+    }
+
+    /**
+     * Count the bytes read from the stream.
+     */
+    public static InputStream metered(InputStream in, LongAdder counter) {
+        return new ProxyInputStream(in) {
+            @Override
+            protected void afterRead(int n) {
+                if (n > 0) {
+                    counter.add(n);
+                }
+            }
+        };
+    }
+
+    /**
+     * Count the bytes written to the stream.
+     */
+    public static OutputStream metered(OutputStream out, LongAdder counter) {
+        return new ProxyOutputStream(out) {
+            @Override
+            protected void afterWrite(int n) {
+                counter.add(n);
+            }
+        };
+    }
+
+    /**
+     * Drop the bytes a failed transfer wrote to a target stream which only replaces the file once
+     * closed, so that closing the wrappers afterwards does not commit a truncated file.
+     *
+     * @param out the stream of the connector, not a wrapper
+     */
+    public static void abort(OutputStream out) {
+        if (out instanceof AbortableOutputStream) {
+            ((AbortableOutputStream) out).abort();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.ConnectorFactory;
+import io.dataround.link.connector.FileConnector;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keyed pool of file connectors, one key per endpoint (connection parameter).
+ * Borrowed connectors keep their FTP/SFTP session open between files, so a worker
+ * only pays the connect and login cost once instead of once per file.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class FileConnectorPool implements AutoCloseable {
+
+    private final int maxSessionsPerEndpoint;
+    private final long maxIdleMillis;
+    private final long borrowTimeoutMillis;
+    private final Map<Param, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param maxSessionsPerEndpoint max sessions opened at the same time to one endpoint
+     * @param maxIdleMillis          idle sessions older than this are closed by the evictor
+     * @param borrowTimeoutMillis    max time to wait for a free session
+     */
+    public FileConnectorPool(int maxSessionsPerEndpoint, long maxIdleMillis, long borrowTimeoutMillis) {
+        this.maxSessionsPerEndpoint = maxSessionsPerEndpoint;
+        this.maxIdleMillis = maxIdleMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "file-connector-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000L, maxIdleMillis / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connector for the endpoint, reusing an idle session when a valid one exists.
+     *
+     * @param param connector parameters, also used as the endpoint key
+     * @return a lease which gives the connector back to the pool on close
+     */
+    public Lease borrow(Param param) throws InterruptedException {
+        // counted as a user while the key is locked, the evictor can not remove the endpoint meanwhile
+        Endpoint endpoint = endpoints.compute(param, (k, current) -> {
+            Endpoint result = current == null ? new Endpoint(maxSessionsPerEndpoint) : current;
+            result.users.incrementAndGet();
+            return result;
+        });
+        boolean acquired = false;
+        try {
+            acquired = endpoint.permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!acquired) {
+                endpoint.users.decrementAndGet();
+            }
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Timeout waiting for a free session of connector " + param.getName()
+                    + ", host: " + param.getHost() + ", max sessions: " + maxSessionsPerEndpoint);
+        }
+        try {
+            IdleConnector idle;
+            while ((idle = endpoint.idle.pollFirst()) != null) {
+                if (idle.connector.validate()) {
+                    return new Lease(endpoint, idle.connector);
+                }
+                log.debug("Discard invalid pooled connector: {}, host: {}", param.getName(), param.getHost());
+                closeQuietly(idle.connector);
+            }
+            return new Lease(endpoint, ConnectorFactory.createFileConnector(param));
+        } catch (RuntimeException e) {
+            endpoint.permits.release();
+            endpoint.users.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the sessions which have been idle for longer than maxIdleMillis, and drop the
+     * endpoints left without sessions, so that the parameters of old jobs are not kept.
+     */
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - maxIdleMillis;
+        for (Map.Entry<Param, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            Iterator<IdleConnector> iterator = endpoint.idle.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleConnector idle = iterator.next();
+                if (idle.lastUsed < deadline && endpoint.idle.removeFirstOccurrence(idle)) {
+                    closeQuietly(idle.connector);
+                }
+            }
+            // a lease gives its session back before it stops counting as a user
+            endpoints.computeIfPresent(entry.getKey(),
+                    (k, current) -> current.users.get() == 0 && current.idle.isEmpty() ? null : current);
+        }
+    }
+
+    /**
+     * Number of endpoints kept by the pool.
+     */
+    public int getEndpointCount() {
+        return endpoints.size();
+    }
+
+    /**
+     * Number of idle sessions kept for the endpoint.
+     */
+    public int getIdleCount(Param param) {
+        Endpoint endpoint = endpoints.get(param);
+        return endpoint == null ? 0 : endpoint.idle.size();
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        for (Endpoint endpoint : endpoints.values()) {
+            IdleConnector idle;
+            while ((idle = endpoint.idle.pollFirst()) != null) {
+                closeQuietly(idle.connector);
+            }
+        }
+        endpoints.clear();
+    }
+
+    private static void closeQuietly(FileConnector connector) {
+        try {
+            connector.close();
+        } catch (Exception e) {
+            log.info("Close pooled file connector failed", e);
+        }
+    }
+
+    private static class Endpoint {
+        private final Semaphore permits;
+        // most recently used first, so that rarely used sessions age out
+        private final ConcurrentLinkedDeque<IdleConnector> idle = new ConcurrentLinkedDeque<>();
+        // borrowers waiting for a session or holding one
+        private final AtomicInteger users = new AtomicInteger();
+
+        Endpoint(int maxSessions) {
+            this.permits = new Semaphore(maxSessions, true);
+        }
+    }
+
+    private static class IdleConnector {
+        private final FileConnector connector;
+        private final long lastUsed = System.currentTimeMillis();
+
+        IdleConnector(FileConnector connector) {
+            this.connector = connector;
+        }
+    }
+
+    /**
+     * A borrowed connector, return it with close(), or call invalidate() first when
+     * the session is broken so that it is closed instead of being reused.
+     */
+    public static class Lease implements AutoCloseable {
+        private final Endpoint endpoint;
+        private final FileConnector connector;
+        private boolean invalid = false;
+        private boolean returned = false;
+
+        private Lease(Endpoint endpoint, FileConnector connector) {
+            this.endpoint = endpoint;
+            this.connector = connector;
+        }
+
+        public FileConnector get() {
+            return connector;
+        }
+
+        public void invalidate() {
+            this.invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (returned) {
+                return;
+            }
+            returned = true;
+            try {
+                if (invalid) {
+                    closeQuietly(connector);
+                } else {
+                    endpoint.idle.offerFirst(new IdleConnector(connector));
+                }
+            } finally {
+                endpoint.permits.release();
+                endpoint.users.decrementAndGet();
+            }
+        }
+    }
+}
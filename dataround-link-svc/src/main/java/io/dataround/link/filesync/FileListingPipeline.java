@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.ConnectorFactory;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lists the source directory on its own thread and hands the files over through a bounded
+ * buffer, so the transfers start with the first files found and a huge tree is never held in
+ * memory. The lister blocks while the buffer is full, which keeps it at most capacity files
+ * ahead of the transfers.
+ * <p>
+ * In largest first order the files are only handed over once the listing is done or the
+ * buffer is full, then always the largest one buffered. A large file listed last no longer
+ * runs alone at the end of the sync, the small files fill the workers around the large ones.
+ * The order is exact when the listing fits in the buffer.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class FileListingPipeline implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 1000L;
+    private static final Comparator<FileInfo> LARGEST_FIRST = Comparator.comparingLong(FileInfo::getSize).reversed();
+
+    private final FileSyncContext context;
+    private final Param param;
+    private final String dir;
+    private final String filePattern;
+    private final boolean recursive;
+    private final Predicate<FileInfo> filter;
+    private final int capacity;
+    private final boolean largestFirst;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock
+    private final Queue<FileInfo> buffer;
+    private boolean listed = false;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Thread lister;
+    private volatile boolean closed = false;
+    private long listedCount = 0L;
+    private long queuedCount = 0L;
+
+    public FileListingPipeline(FileSyncContext context, Param param, String dir, String filePattern, boolean recursive,
+            Predicate<FileInfo> filter, int capacity) {
+        this(context, param, dir, filePattern, recursive, filter, capacity, false);
+    }
+
+    /**
+     * @param context      the job instance context, the listing stops when it is cancelled
+     * @param param        connector of the listed directory
+     * @param dir          the listed directory
+     * @param filePattern  file pattern (wildcard)
+     * @param recursive    whether to list the subdirectories
+     * @param filter       files rejected by the filter are not transferred
+     * @param capacity     maximum number of files listed ahead of the transfers
+     * @param largestFirst hand over the largest files first instead of the listing order
+     */
+    public FileListingPipeline(FileSyncContext context, Param param, String dir, String filePattern, boolean recursive,
+            Predicate<FileInfo> filter, int capacity, boolean largestFirst) {
+        this.context = context;
+        this.param = param;
+        this.dir = dir;
+        this.filePattern = filePattern;
+        this.recursive = recursive;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.largestFirst = largestFirst;
+        this.buffer = largestFirst ? new PriorityQueue<>(LARGEST_FIRST) : new ArrayDeque<>();
+        this.lister = new Thread(this::list, "file-sync-lister-" + context.getInstanceId());
+        this.lister.setDaemon(true);
+    }
+
+    public void start() {
+        lister.start();
+    }
+
+    /**
+     * Take the next listed file, waiting for the lister if needed.
+     *
+     * @return the next file, null at the end of the listing or when the job is cancelled
+     * @throws RuntimeException if the listing failed
+     */
+    public FileInfo next() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                if (context.isCancelled()) {
+                    return null;
+                }
+                // sizes are only compared once enough files are known
+                boolean ready = !largestFirst || listed || buffer.size() >= capacity;
+                if (ready && !buffer.isEmpty()) {
+                    FileInfo file = buffer.poll();
+                    notFull.signal();
+                    return file;
+                }
+                if (listed && buffer.isEmpty()) {
+                    Throwable e = failure.get();
+                    if (e != null) {
+                        throw new RuntimeException("Failed to list files in directory: " + dir, e);
+                    }
+                    return null;
+                }
+                notEmpty.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void list() {
+        try (FileConnector connector = ConnectorFactory.createFileConnector(param)) {
+            connector.listFiles(dir, filePattern, recursive, file -> {
+                listedCount++;
+                if (filter.test(file)) {
+                    put(file);
+                    queuedCount++;
+                }
+            });
+            log.info("File sync instance {} listed {} files, {} to transfer", context.getInstanceId(), listedCount,
+                    queuedCount);
+        } catch (Throwable e) {
+            if (!closed && !context.isCancelled()) {
+                failure.set(e);
+            }
+        } finally {
+            lock.lock();
+            try {
+                listed = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void put(FileInfo file) {
+        lock.lock();
+        try {
+            while (buffer.size() >= capacity) {
+                if (closed || context.isCancelled()) {
+                    // aborts the listing of the connector
+                    throw new CancellationException("File listing stopped");
+                }
+                notFull.await(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            buffer.add(file);
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("File listing interrupted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the lister, the files not taken yet are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            buffer.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
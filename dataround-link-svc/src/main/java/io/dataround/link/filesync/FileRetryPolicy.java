@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import lombok.Getter;
+
+/**
+ * Retry policy of the transfer of one file. Network and server errors are retried with an
+ * exponential backoff, errors which would happen again, like a missing file or a denied
+ * permission, are not.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileRetryPolicy {
+
+    @Getter
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    /**
+     * @param maxAttempts          attempts of a file including the first one, 1 disables retries
+     * @param initialBackoffMillis wait before the first retry, doubled for every following one
+     * @param maxBackoffMillis     max wait before a retry
+     */
+    public FileRetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(0L, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Whether the failed attempt may be followed by another one.
+     *
+     * @param attempt the failed attempt, from 1
+     */
+    public boolean shouldRetry(Throwable failure, int attempt) {
+        return attempt < maxAttempts && isRetryable(failure);
+    }
+
+    /**
+     * Whether the failure may not happen again, the outermost cause deciding. The connectors turn
+     * the errors of their libraries into the IOExceptions telling it.
+     */
+    public static boolean isRetryable(Throwable failure) {
+        for (Throwable cause : ExceptionUtils.getThrowableList(failure)) {
+            if (cause instanceof InterruptedException || cause instanceof FileNotFoundException
+                    || cause instanceof NoSuchFileException || cause instanceof AccessDeniedException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait before the next attempt, between half and all of the exponential backoff so that
+     * the files failing together with a flaky server do not retry at the same time.
+     *
+     * @param attempt the failed attempt, from 1
+     */
+    public long getBackoffMillis(int attempt) {
+        long backoff = initialBackoffMillis << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffMillis) {
+            backoff = maxBackoffMillis;
+        }
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+}
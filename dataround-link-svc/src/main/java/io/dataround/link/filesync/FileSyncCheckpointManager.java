@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.BeanUtils;
+
+import io.dataround.link.connector.FileInfo;
+import io.dataround.link.entity.FileSyncCheckpoint;
+import io.dataround.link.entity.enums.FileSyncCheckpointStatusEnum;
+import io.dataround.link.service.FileSyncCheckpointService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per file progress of a file sync job, kept in memory by the workers and flushed to the
+ * file_sync_checkpoint table in batches, so that neither recording nor looking up progress
+ * costs a database round trip on the transfer path.
+ * <p>
+ * Checkpoints left by a failed or cancelled instance are loaded in pages when the next instance
+ * starts, and the ones written by the instance stay in memory with them, so the memory follows
+ * the rows of the job: they are removed once an instance transferred every file, and by a
+ * continuous instance for the files done long ago. A checkpoint only applies while the size and modified time of the source file are the
+ * ones recorded when its transfer started, a changed source is transferred from the start.
+ * A job writing to several targets has one checkpoint per file and target, it records the
+ * connection and path of its target and does not apply once the target at its index changed.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class FileSyncCheckpointManager {
+
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final Long jobId;
+    private final Long instanceId;
+    private final List<FileSyncContext.Target> targets;
+    private final FileSyncCheckpointService checkpointService;
+    // by target index and file, the stored checkpoints and the ones started since, guarded by this
+    private final Map<Integer, Map<String, FileSyncCheckpoint>> checkpoints = new HashMap<>();
+    private final Set<FileSyncCheckpoint> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+    // serializes the flushes of the timer and of the instance end
+    private final Object flushLock = new Object();
+
+    public FileSyncCheckpointManager(Long jobId, Long instanceId, List<FileSyncContext.Target> targets,
+            FileSyncCheckpointService checkpointService) {
+        this.jobId = jobId;
+        this.instanceId = instanceId;
+        this.targets = targets;
+        this.checkpointService = checkpointService;
+        long count = load();
+        if (count > 0) {
+            log.info("Resume file sync job {} from {} checkpoints of a previous instance", jobId, count);
+        }
+    }
+
+    /**
+     * Load the stored checkpoints of the job, one query per page instead of one per file.
+     *
+     * @return the number of checkpoints loaded
+     */
+    private long load() {
+        long count = 0L;
+        Long lastId = null;
+        List<FileSyncCheckpoint> page;
+        do {
+            page = checkpointService.listByJobId(jobId, lastId, LOAD_PAGE_SIZE);
+            synchronized (this) {
+                for (FileSyncCheckpoint checkpoint : page) {
+                    int index = checkpoint.getTargetIndex() == null ? 0 : checkpoint.getTargetIndex();
+                    checkpoints(index).put(checkpoint.getFilePath(), checkpoint);
+                    lastId = checkpoint.getId();
+                }
+            }
+            count += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+        return count;
+    }
+
+    /**
+     * Whether the file was completely transferred to the target by a previous instance and has not changed since.
+     */
+    public boolean isDone(int target, String file, FileInfo sourceInfo) {
+        FileSyncCheckpoint checkpoint = lookup(target, file);
+        synchronized (this) {
+            return Objects.equals(checkpoint.getStatus(), FileSyncCheckpointStatusEnum.DONE.getCode())
+                    && matches(checkpoint, target, sourceInfo);
+        }
+    }
+
+    /**
+     * Bytes of the file committed to the target by a previous instance, 0 if the transfer must start over.
+     */
+    public long getCommittedBytes(int target, String file, FileInfo sourceInfo) {
+        FileSyncCheckpoint checkpoint = lookup(target, file);
+        synchronized (this) {
+            if (!Objects.equals(checkpoint.getStatus(), FileSyncCheckpointStatusEnum.IN_PROGRESS.getCode())
+                    || !matches(checkpoint, target, sourceInfo)) {
+                return 0L;
+            }
+            return checkpoint.getCommittedBytes();
+        }
+    }
+
+    /**
+     * Record that the transfer of the file to the target starts at the given offset.
+     */
+    public void start(int target, String file, FileInfo sourceInfo, long offset) {
+        FileSyncCheckpoint checkpoint = lookup(target, file);
+        synchronized (this) {
+            checkpoint.setInstanceId(instanceId);
+            checkpoint.setTargetConnId(targets.get(target).getConnId());
+            checkpoint.setTargetPath(targets.get(target).getPath());
+            checkpoint.setSourceSize(sourceInfo.getSize());
+            checkpoint.setSourceMtime(sourceInfo.getModifiedTime());
+            checkpoint.setCommittedBytes(offset);
+            checkpoint.setStatus(FileSyncCheckpointStatusEnum.IN_PROGRESS.getCode());
+            checkpoint.setUpdateTime(new Date());
+            // kept in memory until the file is done
+            checkpoints(target).put(file, checkpoint);
+            dirty.add(checkpoint);
+        }
+    }
+
+    /**
+     * Record the bytes of the file written to the target so far.
+     */
+    public synchronized void commit(int target, String file, long committedBytes) {
+        FileSyncCheckpoint checkpoint = checkpoints(target).get(file);
+        if (checkpoint != null) {
+            checkpoint.setCommittedBytes(committedBytes);
+            checkpoint.setUpdateTime(new Date());
+            dirty.add(checkpoint);
+        }
+    }
+
+    /**
+     * Record that the file is completely transferred to the target.
+     */
+    public synchronized void done(int target, String file) {
+        FileSyncCheckpoint checkpoint = checkpoints(target).get(file);
+        if (checkpoint != null) {
+            checkpoint.setCommittedBytes(checkpoint.getSourceSize());
+            checkpoint.setStatus(FileSyncCheckpointStatusEnum.DONE.getCode());
+            checkpoint.setUpdateTime(new Date());
+            dirty.add(checkpoint);
+        }
+    }
+
+    /**
+     * Write the checkpoints changed since the last flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<FileSyncCheckpoint> originals = new ArrayList<>();
+            List<FileSyncCheckpoint> inserts = new ArrayList<>();
+            List<FileSyncCheckpoint> updates = new ArrayList<>();
+            synchronized (this) {
+                for (FileSyncCheckpoint checkpoint : dirty) {
+                    // write copies, the workers keep changing the originals during the flush
+                    FileSyncCheckpoint copy = new FileSyncCheckpoint();
+                    BeanUtils.copyProperties(checkpoint, copy);
+                    if (copy.getId() == null) {
+                        originals.add(checkpoint);
+                        inserts.add(copy);
+                    } else {
+                        updates.add(copy);
+                    }
+                }
+                dirty.clear();
+            }
+            if (!inserts.isEmpty()) {
+                checkpointService.saveBatch(inserts);
+                synchronized (this) {
+                    for (int i = 0; i < inserts.size(); i++) {
+                        originals.get(i).setId(inserts.get(i).getId());
+                    }
+                }
+            }
+            if (!updates.isEmpty()) {
+                checkpointService.updateBatchById(updates);
+            }
+        }
+    }
+
+    /**
+     * Remove the checkpoints of the files done before the given time, a continuous instance
+     * calls it from time to time since it never ends with every file transferred.
+     */
+    public void removeDoneBefore(Date before) {
+        synchronized (flushLock) {
+            checkpointService.removeDoneBefore(jobId, before);
+            synchronized (this) {
+                for (Map<String, FileSyncCheckpoint> byFile : checkpoints.values()) {
+                    // the ones not flushed yet were changed after the time anyway
+                    byFile.values().removeIf(checkpoint -> !dirty.contains(checkpoint)
+                            && Objects.equals(checkpoint.getStatus(), FileSyncCheckpointStatusEnum.DONE.getCode())
+                            && checkpoint.getUpdateTime() != null && checkpoint.getUpdateTime().before(before));
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all the checkpoints of the job, called when an instance transferred every file.
+     */
+    public void clear() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                checkpoints.clear();
+                dirty.clear();
+            }
+            checkpointService.removeByJobId(jobId);
+        }
+    }
+
+    /**
+     * The checkpoint of the file, or a new one without status, which start() keeps.
+     */
+    private FileSyncCheckpoint lookup(int target, String file) {
+        synchronized (this) {
+            FileSyncCheckpoint checkpoint = checkpoints(target).get(file);
+            if (checkpoint != null) {
+                return checkpoint;
+            }
+        }
+        FileSyncCheckpoint created = new FileSyncCheckpoint();
+        created.setJobId(jobId);
+        created.setFilePath(file);
+        created.setTargetIndex(target);
+        return created;
+    }
+
+    private Map<String, FileSyncCheckpoint> checkpoints(int target) {
+        return checkpoints.computeIfAbsent(target, k -> new HashMap<>());
+    }
+
+    private boolean matches(FileSyncCheckpoint checkpoint, int target, FileInfo sourceInfo) {
+        FileSyncContext.Target current = targets.get(target);
+        return sourceInfo != null && Objects.equals(checkpoint.getTargetConnId(), current.getConnId())
+                && Objects.equals(checkpoint.getTargetPath(), current.getPath())
+                && Objects.equals(checkpoint.getSourceSize(), sourceInfo.getSize())
+                && Objects.equals(checkpoint.getSourceMtime(), sourceInfo.getModifiedTime());
+    }
+}
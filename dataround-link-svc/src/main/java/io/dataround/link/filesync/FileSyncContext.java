@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.FilenameUtils;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.entity.enums.FileSyncCompressionEnum;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Runtime state of one file sync job instance, shared by all the workers of the instance.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Getter
+public class FileSyncContext {
+
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String TEMP_FILE_SUFFIX = ".part";
+
+    private final Long instanceId;
+    private final Param sourceParam;
+    // the first target of the job
+    private final Param targetParam;
+    private final String sourcePath;
+    private final String targetPath;
+    // every target of the job, the first one included, each source file is written to all of them
+    private final List<Target> targets = new ArrayList<>();
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicBoolean cancelFlag = new AtomicBoolean(false);
+    // updated by every worker, LongAdder keeps them from contending on one cache line
+    private final LongAdder readCount = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private final LongAdder writeBytes = new LongAdder();
+    // bytes of the files before compression or after decompression, the bytes read and
+    // written are the ones crossing the connectors
+    private final LongAdder rawBytes = new LongAdder();
+    // files given up after their retries
+    private final LongAdder failedCount = new LongAdder();
+    // bandwidth limits of the job and of its connections
+    @Setter
+    private List<BandwidthLimiter> bandwidthLimiters = Collections.emptyList();
+    // read-ahead buffers of the streamed files
+    @Setter
+    private int bufferSize = 8192;
+    @Setter
+    private int bufferDepth = 1;
+    @Setter
+    private FileSyncCompressionEnum compression = FileSyncCompressionEnum.NONE;
+    // compare the checksum of every file with the target
+    @Setter
+    private boolean verifyChecksum = false;
+    // write every file to a hidden temporary file renamed to the target once complete
+    @Setter
+    private boolean atomicWrite = false;
+    // write only the blocks of an existing target file which differ from the source
+    @Setter
+    private boolean deltaTransfer = false;
+    // runs the transfers of the instance, its lane of the shared workers
+    @Setter
+    private Executor executor;
+    // totals of the last metrics flush
+    @Getter(AccessLevel.NONE)
+    private long flushedTotal = -1L;
+
+    public FileSyncContext(Long instanceId, Param sourceParam, Long targetConnId, Param targetParam, String sourcePath,
+            String targetPath) {
+        this.instanceId = instanceId;
+        this.sourceParam = sourceParam;
+        this.targetParam = targetParam;
+        this.sourcePath = sourcePath;
+        this.targetPath = targetPath;
+        this.targets.add(new Target(0, targetConnId, targetParam, targetPath));
+    }
+
+    /**
+     * Add a target the files are replicated to, besides the first one.
+     */
+    public void addTarget(Long connId, Param param, String path) {
+        targets.add(new Target(targets.size(), connId, param, path));
+    }
+
+    /**
+     * Whether the metrics changed since the last call, so that an idle instance is not written again.
+     */
+    public synchronized boolean checkMetricsChanged() {
+        long total = readCount.sum() + writeCount.sum() + readBytes.sum() + writeBytes.sum() + rawBytes.sum();
+        if (total == flushedTotal) {
+            return false;
+        }
+        flushedTotal = total;
+        return true;
+    }
+
+    public boolean isThrottled() {
+        for (BandwidthLimiter limiter : bandwidthLimiters) {
+            if (limiter.isLimited()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait until the bytes may be moved under every bandwidth limit of the instance.
+     */
+    public void throttle(long bytes) throws InterruptedException {
+        long waitNanos = 0L;
+        for (BandwidthLimiter limiter : bandwidthLimiters) {
+            waitNanos = Math.max(waitNanos, limiter.reserve(bytes));
+        }
+        sleep(waitNanos);
+    }
+
+    /**
+     * Sleep, waking up regularly so that a cancelled instance does not wait until the end.
+     */
+    public void sleep(long waitNanos) throws InterruptedException {
+        while (waitNanos > 0) {
+            if (isCancelled()) {
+                throw new InterruptedException("File sync cancelled");
+            }
+            long sleepNanos = Math.min(waitNanos, MAX_SLEEP_NANOS);
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            waitNanos -= sleepNanos;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelFlag.get() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Absolute source path of a file listed relative to the source directory
+     */
+    public String getSourceFile(String file) {
+        return sourcePath.endsWith("/") ? sourcePath + file : sourcePath + "/" + file;
+    }
+
+    /**
+     * Absolute path on the target of a file listed relative to the source directory, renamed by the compression
+     */
+    public String getTargetFile(Target target, String file) {
+        String name = FileCodec.getTargetName(compression, file);
+        String path = target.getPath();
+        return path.endsWith("/") ? path + name : path + "/" + name;
+    }
+
+    /**
+     * Hidden temporary file next to the target file, its name does not depend on the instance
+     * so that a later instance resumes it
+     */
+    public String getTempFile(String targetFile) {
+        // a local target on windows separates the directories with backslashes
+        return FilenameUtils.getFullPath(targetFile) + "." + FilenameUtils.getName(targetFile) + TEMP_FILE_SUFFIX;
+    }
+
+    /**
+     * One target of the job, its index identifies the target in the checkpoints and file records.
+     */
+    @Getter
+    public static class Target {
+        private final int index;
+        private final Long connId;
+        private final Param param;
+        private final String path;
+        // the connectors of the source and of the target can not copy files between their servers
+        @Setter
+        private volatile boolean serverCopyRefused = false;
+
+        private Target(int index, Long connId, Param param, String path) {
+            this.index = index;
+            this.connId = connId;
+            this.param = param;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.dataround.link.entity.FileSyncFile;
+import io.dataround.link.entity.enums.FileSyncFileStatusEnum;
+import io.dataround.link.service.FileSyncFileService;
+
+/**
+ * Results of the files transferred by a file sync job instance, kept in memory by the
+ * workers and inserted into the file_sync_file table in batches like the checkpoints.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileSyncFileRecorder {
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private final Long jobId;
+    private final Long instanceId;
+    private final FileSyncFileService fileService;
+    // guarded by this
+    private List<FileSyncFile> pending = new ArrayList<>();
+    // serializes the flushes of the timer and of the instance end
+    private final Object flushLock = new Object();
+
+    public FileSyncFileRecorder(Long jobId, Long instanceId, FileSyncFileService fileService) {
+        this.jobId = jobId;
+        this.instanceId = instanceId;
+        this.fileService = fileService;
+    }
+
+    /**
+     * Record a file transferred to the target.
+     *
+     * @param checksum CRC32C of the file, null if it was not computed
+     */
+    public void success(int target, String file, long size, String checksum) {
+        add(target, file, size, checksum, FileSyncFileStatusEnum.SUCCESS, null);
+    }
+
+    /**
+     * Record a file that could not be transferred to the target.
+     */
+    public void failed(int target, String file, long size, String message) {
+        add(target, file, size, null, FileSyncFileStatusEnum.FAILED,
+                StringUtils.abbreviate(message, MAX_MESSAGE_LENGTH));
+    }
+
+    private synchronized void add(int target, String file, long size, String checksum,
+            FileSyncFileStatusEnum status, String message) {
+        FileSyncFile record = new FileSyncFile();
+        record.setJobId(jobId);
+        record.setInstanceId(instanceId);
+        record.setFilePath(file);
+        record.setTargetIndex(target);
+        record.setFileSize(size);
+        record.setChecksum(checksum);
+        record.setStatus(status.getCode());
+        record.setMessage(message);
+        record.setCreateTime(new Date());
+        pending.add(record);
+    }
+
+    /**
+     * Insert the files recorded since the last flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<FileSyncFile> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            try {
+                fileService.saveBatch(batch);
+            } catch (RuntimeException e) {
+                // inserted again with the next flush
+                synchronized (this) {
+                    pending.addAll(0, batch);
+                }
+                throw e;
+            }
+        }
+    }
+}
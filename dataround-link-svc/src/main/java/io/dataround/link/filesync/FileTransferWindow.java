@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fixed size window of the file transfers of one job instance in flight on the shared executor.
+ * A new transfer is submitted when a running one completes, so the memory used does not depend
+ * on the number of files and cancelling touches at most size transfers.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileTransferWindow {
+
+    private static final long POLL_MILLIS = 1000L;
+
+    private final FileSyncContext context;
+    private final Executor executor;
+    private final int size;
+    private final Semaphore permits;
+    private final Set<FutureTask<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    // the first failed transfer, no new transfer is submitted after it
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public FileTransferWindow(FileSyncContext context, Executor executor, int size) {
+        this.context = context;
+        this.executor = executor;
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Submit a transfer, waiting for a free slot of the window.
+     *
+     * @return false if the instance is cancelled or a transfer failed, the task is not submitted
+     */
+    public boolean submit(Callable<Void> task) throws InterruptedException {
+        while (!permits.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (isStopped()) {
+                return false;
+            }
+        }
+        if (isStopped()) {
+            permits.release();
+            return false;
+        }
+        FutureTask<Void> future = new FutureTask<Void>(task) {
+            @Override
+            protected void done() {
+                inFlight.remove(this);
+                if (!isCancelled()) {
+                    try {
+                        get();
+                    } catch (ExecutionException e) {
+                        failure.compareAndSet(null, e.getCause());
+                    } catch (InterruptedException e) {
+                        // not possible, the task is done
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                permits.release();
+            }
+        };
+        inFlight.add(future);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Wait until every submitted transfer is done.
+     *
+     * @return the first failure of a transfer, null if none failed
+     */
+    public Throwable await() throws InterruptedException {
+        while (!permits.tryAcquire(size, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (context.getCancelFlag().get()) {
+                // the cancelled transfers stop on their own
+                break;
+            }
+        }
+        return failure.get();
+    }
+
+    /**
+     * Cancel the transfers in flight.
+     *
+     * @return the number of transfers cancelled
+     */
+    public int cancel() {
+        int cancelled = 0;
+        for (FutureTask<Void> future : inFlight) {
+            if (future.cancel(true)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Whether the instance is cancelled or a transfer failed, nothing is submitted any more.
+     */
+    public boolean isStopped() {
+        return failure.get() != null || context.isCancelled();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * Select the source files of an incremental file sync which have to be transferred, by
+ * comparing the listings of the source and the target directories.
+ * <p>
+ * A copy gets the time it was written as modified time, so a target file is up to date when
+ * it has the size of the source file and was modified at or after the source file. Clock skew
+ * between the servers makes a file transferred again at worst, unless the target clock is ahead
+ * of the source clock.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class IncrementalFileFilter implements Predicate<FileInfo> {
+
+    private final Map<String, FileInfo> targetIndex;
+    private final UnaryOperator<String> targetName;
+    private final boolean compareSize;
+
+    /**
+     * @param targetFiles target listing, paths relative to the target directory
+     */
+    public IncrementalFileFilter(List<FileInfo> targetFiles) {
+        this(targetFiles, UnaryOperator.identity(), true);
+    }
+
+    /**
+     * @param targetFiles target listing, paths relative to the target directory
+     * @param targetName  name of the target file of a source file
+     * @param compareSize false when the target is compressed or decompressed, only the
+     *                    modified times are compared then
+     */
+    public IncrementalFileFilter(List<FileInfo> targetFiles, UnaryOperator<String> targetName, boolean compareSize) {
+        this.targetName = targetName;
+        this.compareSize = compareSize;
+        this.targetIndex = new HashMap<>(targetFiles.size() * 2);
+        for (FileInfo targetFile : targetFiles) {
+            targetIndex.put(normalize(targetFile.getPath()), targetFile);
+        }
+    }
+
+    /**
+     * Whether the source file is missing on the target or changed since it was copied.
+     *
+     * @param sourceFile source file, path relative to the source directory
+     */
+    @Override
+    public boolean test(FileInfo sourceFile) {
+        return !isUnchanged(sourceFile, targetIndex.get(normalize(targetName.apply(sourceFile.getPath()))));
+    }
+
+    private boolean isUnchanged(FileInfo sourceFile, FileInfo targetFile) {
+        return targetFile != null && (!compareSize || targetFile.getSize() == sourceFile.getSize())
+                && targetFile.getModifiedTime() >= sourceFile.getModifiedTime();
+    }
+
+    // local listings use the platform separator, the remote ones use '/'
+    private static String normalize(String path) {
+        return path.replace('\\', '/');
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copy between two local file connectors with FileChannel.transferTo, the kernel moves
+ * the bytes (copy_file_range/sendfile) without passing them through the java heap.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class LocalFileTransfer {
+
+    // transfer in slices so that cancellation is checked regularly
+    private static final long SLICE_SIZE = 64L * 1024L * 1024L;
+    // smaller slices under a bandwidth limit, so that the bytes are spread over time
+    private static final long THROTTLED_SLICE_SIZE = 1024L * 1024L;
+
+    /**
+     * Whether both ends of the job are local file connectors.
+     */
+    public static boolean isLocalToLocal(Param sourceParam, Param targetParam) {
+        return ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(sourceParam.getName())
+                && ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(targetParam.getName());
+    }
+
+    /**
+     * Copy the source file to the target file, the target is truncated first.
+     */
+    public static void copy(FileSyncContext context, String srcFile, String targetFile) throws IOException, InterruptedException {
+        log.debug("start to sync local file: {} -> {}", srcFile, targetFile);
+        try (FileChannel in = FileChannel.open(Paths.get(srcFile), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(Paths.get(targetFile), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long sliceSize = context.isThrottled() ? THROTTLED_SLICE_SIZE : SLICE_SIZE;
+            long position = 0L;
+            while (position < size) {
+                if (context.isCancelled()) {
+                    log.info("File sync cancelled for file: {} -> {}", srcFile, targetFile);
+                    throw new InterruptedException("File sync cancelled");
+                }
+                long slice = Math.min(sliceSize, size - position);
+                context.throttle(slice);
+                long transferred = in.transferTo(position, slice, out);
+                if (transferred <= 0) {
+                    // the source shrank while copying
+                    break;
+                }
+                position += transferred;
+                context.getReadBytes().add(transferred);
+                context.getWriteBytes().add(transferred);
+                context.getRawBytes().add(transferred);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.dataround.link.connector.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watch a local source directory with the WatchService of the file system, every directory
+ * of the tree is registered, the new ones as soon as they are created. When the events
+ * overflowed the whole tree is reported, the files already transferred are skipped by their
+ * checkpoints.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class LocalFileWatcher extends FileChangeWatcher {
+
+    // wake up regularly so that a cancelled instance does not wait for the interval
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path basePath;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    public LocalFileWatcher(FileSyncContext context, String filePattern, boolean recursive) throws IOException {
+        super(context, filePattern, recursive);
+        this.basePath = Paths.get(context.getSourcePath());
+        this.watchService = basePath.getFileSystem().newWatchService();
+        register(basePath, null);
+        log.info("File sync instance {} watches {} directories of {}", context.getInstanceId(), directories.size(),
+                basePath);
+    }
+
+    @Override
+    protected void detectChanges(long intervalMillis, Consumer<FileInfo> changes) throws Exception {
+        // the whole interval is waited, a file written continuously must look the same one interval apart
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (context.isCancelled()) {
+                throw new InterruptedException("File sync cancelled");
+            }
+            WatchKey key = watchService.poll(Math.min(remaining, MAX_WAIT_NANOS), TimeUnit.NANOSECONDS);
+            if (key != null) {
+                handleEvents(key, changes);
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey key, Consumer<FileInfo> changes) throws IOException {
+        Path dir = directories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // deleted, or renamed again
+                continue;
+            }
+            if (attrs.isDirectory()) {
+                // the files created before the directory is registered are reported by the walk
+                if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    register(path, changes);
+                }
+            } else if (attrs.isRegularFile()) {
+                changes.accept(toFileInfo(path, attrs));
+            }
+        }
+        if (!key.reset()) {
+            // the directory is gone
+            directories.remove(key);
+        }
+        if (overflow) {
+            log.warn("File sync instance {} missed file system events, report every file of {}",
+                    context.getInstanceId(), basePath);
+            register(basePath, changes);
+        }
+    }
+
+    /**
+     * Register the directory and the ones below it, reporting their files when changes is not null.
+     */
+    private void register(Path dir, Consumer<FileInfo> changes) throws IOException {
+        Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), recursive ? Integer.MAX_VALUE : 1,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+                        WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY);
+                        directories.put(key, path);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        if (changes != null && attrs.isRegularFile()) {
+                            changes.accept(toFileInfo(path, attrs));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException exc) {
+                        // a symbolic link loop, or a file deleted during the walk
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    @Override
+    protected FileInfo stat(String path) throws IOException {
+        Path file = basePath.resolve(path);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.isRegularFile() ? toFileInfo(file, attrs) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // the same relative paths as the listing of the local file connector
+    private FileInfo toFileInfo(Path file, BasicFileAttributes attrs) {
+        return new FileInfo(basePath.relativize(file).toString(), attrs.size(), attrs.lastModifiedTime().toMillis(),
+                false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copy a stream with a reader and a writer overlapping each other, the reader fills a ring
+ * of large buffers ahead of the writer, so that the network reads and writes of a file run
+ * at the same time and every call moves a whole buffer.
+ * <p>
+ * The buffers are recycled across the files, at most maxIdleBuffers of each size are kept.
+ * A stream not larger than one buffer is copied by the calling thread. The bytes copied are
+ * counted as raw bytes, the bytes crossing the connectors are counted by their streams.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class PipelinedCopier {
+
+    private static final long POLL_MILLIS = 100L;
+    // how long a failed copy waits for its reader to notice the closed source
+    private static final long READER_EXIT_TIMEOUT_SECONDS = 10L;
+
+    private final Executor readerExecutor;
+    private final int maxIdleBuffers;
+    private final Map<Integer, Queue<byte[]>> idleBuffers = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> idleCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Listener called after each buffer is written, with the position of the target.
+     */
+    @FunctionalInterface
+    public interface WriteListener {
+        void written(long position) throws IOException;
+    }
+
+    public PipelinedCopier(Executor readerExecutor, int maxIdleBuffers) {
+        this.readerExecutor = readerExecutor;
+        this.maxIdleBuffers = maxIdleBuffers;
+    }
+
+    /**
+     * Copy the input to the output, the streams are not closed on success.
+     *
+     * @param context    the job instance, counts the bytes and stops the copy when cancelled
+     * @param in         source stream
+     * @param out        target stream
+     * @param remaining  bytes expected from the source, the whole stream is copied anyway
+     * @param position   position of the target when the copy starts
+     * @param bufferSize size of each buffer
+     * @param depth      number of buffers in the ring
+     * @param listener   called after each buffer is written
+     * @return the position of the target after the copy
+     */
+    public long copy(FileSyncContext context, InputStream in, OutputStream out, long remaining, long position,
+            int bufferSize, int depth, WriteListener listener) throws Exception {
+        if (remaining <= bufferSize || depth < 2) {
+            return copyDirect(context, in, out, position, bufferSize, listener);
+        }
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            free.add(borrow(bufferSize));
+        }
+        // the reader may hand over every buffer plus the end marker
+        BlockingQueue<Filled> filled = new ArrayBlockingQueue<>(depth + 1);
+        Reader reader = new Reader(context, in, free, filled);
+        readerExecutor.execute(reader);
+        boolean completed = false;
+        try {
+            while (true) {
+                Filled next = filled.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (context.isCancelled()) {
+                    throw new InterruptedException("File sync cancelled");
+                }
+                if (next == null) {
+                    continue;
+                }
+                if (next.failure != null) {
+                    throw next.failure;
+                }
+                if (next.buffer == null) {
+                    break;
+                }
+                context.throttle(next.length);
+                out.write(next.buffer, 0, next.length);
+                context.getRawBytes().add(next.length);
+                position += next.length;
+                free.put(next.buffer);
+                listener.written(position);
+            }
+            completed = true;
+            return position;
+        } finally {
+            if (!completed) {
+                // a reader blocked on the network only returns once the source is closed
+                reader.stop();
+                IOUtils.closeQuietly(in);
+            }
+            if (reader.await()) {
+                // only a finished reader no longer touches the buffers
+                free.forEach(this::release);
+                filled.forEach(next -> release(next.buffer));
+            }
+        }
+    }
+
+    private long copyDirect(FileSyncContext context, InputStream in, OutputStream out, long position,
+            int bufferSize, WriteListener listener) throws Exception {
+        byte[] buffer = borrow(bufferSize);
+        try {
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                if (context.isCancelled()) {
+                    throw new InterruptedException("File sync cancelled");
+                }
+                context.throttle(bytesRead);
+                out.write(buffer, 0, bytesRead);
+                context.getRawBytes().add(bytesRead);
+                position += bytesRead;
+                listener.written(position);
+            }
+            return position;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private byte[] borrow(int bufferSize) {
+        Queue<byte[]> buffers = idleBuffers.get(bufferSize);
+        byte[] buffer = buffers == null ? null : buffers.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        idleCounts.get(bufferSize).decrementAndGet();
+        return buffer;
+    }
+
+    private void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        AtomicInteger count = idleCounts.computeIfAbsent(buffer.length, key -> new AtomicInteger());
+        if (count.incrementAndGet() > maxIdleBuffers) {
+            count.decrementAndGet();
+            return;
+        }
+        idleBuffers.computeIfAbsent(buffer.length, key -> new ConcurrentLinkedQueue<>()).add(buffer);
+    }
+
+    /**
+     * A filled buffer, the end of the source without buffer, or the failure of the reader.
+     */
+    private static final class Filled {
+        private final byte[] buffer;
+        private final int length;
+        private final Exception failure;
+
+        private Filled(byte[] buffer, int length, Exception failure) {
+            this.buffer = buffer;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+
+    private static final class Reader implements Runnable {
+        private final FileSyncContext context;
+        private final InputStream in;
+        private final BlockingQueue<byte[]> free;
+        private final BlockingQueue<Filled> filled;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile boolean stopped = false;
+        private volatile Thread thread;
+
+        private Reader(FileSyncContext context, InputStream in, BlockingQueue<byte[]> free,
+                BlockingQueue<Filled> filled) {
+            this.context = context;
+            this.in = in;
+            this.free = free;
+            this.filled = filled;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (stopped) {
+                    finished.countDown();
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                while (!stopped) {
+                    byte[] buffer = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (buffer == null) {
+                        continue;
+                    }
+                    int length = fill(buffer);
+                    if (length > 0) {
+                        filled.put(new Filled(buffer, length, null));
+                    }
+                    if (length < buffer.length) {
+                        if (length <= 0) {
+                            free.put(buffer);
+                        }
+                        filled.put(new Filled(null, 0, null));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stopped by the writer
+            } catch (Exception e) {
+                // a buffer is held by the reader, so there is room for the failure
+                if (!stopped) {
+                    filled.offer(new Filled(null, 0, e));
+                }
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    // clear an interrupt meant for this copy before the thread runs other work
+                    Thread.interrupted();
+                }
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Read until the buffer is full or the source ends.
+         */
+        private int fill(byte[] buffer) throws IOException {
+            int length = 0;
+            while (length < buffer.length && !stopped) {
+                int bytesRead = in.read(buffer, length, buffer.length - length);
+                if (bytesRead == -1) {
+                    break;
+                }
+                length += bytesRead;
+            }
+            return length;
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+            Thread current = thread;
+            if (current != null) {
+                current.interrupt();
+            }
+        }
+
+        /**
+         * Wait for the reader to return.
+         *
+         * @return false if it is still running
+         */
+        private boolean await() throws InterruptedException {
+            if (finished.await(READER_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return true;
+            }
+            log.warn("File sync reader did not stop after the copy failed");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.dataround.link.connector.ConnectorFactory;
+import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watch a remote source directory by polling, with a cached listing of every directory of
+ * the tree. A poll stats the directories and lists again only the ones whose modified time
+ * changed, which is when an entry was added, removed or renamed in them, a directory is
+ * listed once more on the next poll in case it changed again within the same second.
+ * <p>
+ * A file rewritten in place does not change its directory, it is found by the rescans of the
+ * instance. Storages without directory modified times, like S3, have every directory listed
+ * on each poll.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Slf4j
+public class PollingFileWatcher extends FileChangeWatcher {
+
+    private final String baseDir;
+    // cached directories by path relative to the source directory, "" for the source directory
+    private final Map<String, DirectoryState> directories = new HashMap<>();
+    private FileConnector connector;
+
+    public PollingFileWatcher(FileSyncContext context, String filePattern, boolean recursive) throws Exception {
+        super(context, filePattern, recursive);
+        this.baseDir = context.getSourcePath();
+        readTree("", null);
+        log.info("File sync instance {} polls {} directories of {}", context.getInstanceId(), directories.size(),
+                baseDir);
+    }
+
+    @Override
+    protected void detectChanges(long intervalMillis, Consumer<FileInfo> changes) throws Exception {
+        context.sleep(TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+        try {
+            if (directories.isEmpty()) {
+                // the source directory did not exist yet
+                readTree("", changes);
+                return;
+            }
+            for (String dir : new ArrayList<>(directories.keySet())) {
+                if (context.isCancelled()) {
+                    throw new InterruptedException("File sync cancelled");
+                }
+                DirectoryState state = directories.get(dir);
+                if (state == null) {
+                    // removed with its parent
+                    continue;
+                }
+                FileInfo info = getConnector().getFileInfo(getAbsolutePath(dir));
+                long modifiedTime = info == null ? 0L : info.getModifiedTime();
+                if (modifiedTime != 0L && modifiedTime == state.modifiedTime && !state.recheck) {
+                    continue;
+                }
+                state.recheck = modifiedTime != state.modifiedTime;
+                state.modifiedTime = modifiedTime;
+                readDirectory(dir, state, changes);
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // a new session is opened by the next poll
+            closeConnector();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the directory and the ones below it into the cache, reporting their files when
+     * changes is not null.
+     */
+    private void readTree(String dir, Consumer<FileInfo> changes) throws Exception {
+        DirectoryState state = new DirectoryState();
+        FileInfo info = getConnector().getFileInfo(getAbsolutePath(dir));
+        state.modifiedTime = info == null ? 0L : info.getModifiedTime();
+        directories.put(dir, state);
+        readDirectory(dir, state, changes);
+    }
+
+    /**
+     * List the directory again, reporting its new and changed files and reading its new sub
+     * directories. A directory which can not be listed is dropped with the ones below it.
+     */
+    private void readDirectory(String dir, DirectoryState state, Consumer<FileInfo> changes) throws Exception {
+        Map<String, FileInfo> files = new HashMap<>();
+        Set<String> subDirs = new HashSet<>();
+        try {
+            getConnector().listDirectory(getAbsolutePath(dir), entry -> {
+                if (entry.isDirectory()) {
+                    subDirs.add(entry.getPath());
+                } else {
+                    files.put(entry.getPath(), entry);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the next poll finds the directory again in its parent, if it still exists
+            log.debug("File sync instance {} drops directory {}: {}", context.getInstanceId(), dir, e.getMessage());
+            removeTree(dir);
+            return;
+        }
+        if (changes != null) {
+            for (FileInfo file : files.values()) {
+                FileInfo cached = state.files.get(file.getPath());
+                if (cached == null || cached.getSize() != file.getSize()
+                        || cached.getModifiedTime() != file.getModifiedTime()) {
+                    changes.accept(new FileInfo(getRelativePath(dir, file.getPath()), file.getSize(),
+                            file.getModifiedTime(), false));
+                }
+            }
+        }
+        state.files = files;
+        if (!recursive) {
+            return;
+        }
+        for (String name : subDirs) {
+            String subDir = getRelativePath(dir, name);
+            if (!directories.containsKey(subDir)) {
+                readTree(subDir, changes);
+            }
+        }
+        for (String name : state.subDirs) {
+            if (!subDirs.contains(name)) {
+                removeTree(getRelativePath(dir, name));
+            }
+        }
+        state.subDirs = subDirs;
+    }
+
+    private void removeTree(String dir) {
+        String prefix = dir + "/";
+        directories.keySet().removeIf(path -> path.equals(dir) || path.startsWith(prefix));
+    }
+
+    @Override
+    protected FileInfo stat(String path) throws Exception {
+        FileInfo info = getConnector().getFileInfo(getAbsolutePath(path));
+        return info == null || info.isDirectory() ? null
+                : new FileInfo(path, info.getSize(), info.getModifiedTime(), false);
+    }
+
+    private FileConnector getConnector() {
+        if (connector == null) {
+            connector = ConnectorFactory.createFileConnector(context.getSourceParam());
+        }
+        return connector;
+    }
+
+    private void closeConnector() {
+        if (connector != null) {
+            try {
+                connector.close();
+            } catch (Exception e) {
+                log.debug("Failed to close the connector of the file watcher", e);
+            }
+            connector = null;
+        }
+    }
+
+    private String getAbsolutePath(String path) {
+        if (path.isEmpty()) {
+            return baseDir;
+        }
+        return baseDir.endsWith("/") ? baseDir + path : baseDir + "/" + path;
+    }
+
+    private static String getRelativePath(String dir, String name) {
+        return dir.isEmpty() ? name : dir + "/" + name;
+    }
+
+    @Override
+    public void close() {
+        closeConnector();
+    }
+
+    private static class DirectoryState {
+        private long modifiedTime;
+        // listed once more after a change, a change within the same second keeps the modified time
+        private boolean recheck;
+        private Map<String, FileInfo> files = new HashMap<>();
+        private Set<String> subDirs = new HashSet<>();
+    }
+}
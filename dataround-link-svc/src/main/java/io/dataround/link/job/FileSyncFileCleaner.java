@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.dataround.link.job;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.dataround.link.service.FileSyncFileService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Component for removing the files recorded by file sync job instances once they are
+ * older than the retention, so that the file_sync_file table does not grow without bound.
+ *
+ * @author yuehan124@gmail.com
+ * @since 2026-10-18
+ */
+@Slf4j
+@Component
+public class FileSyncFileCleaner {
+
+    @Autowired
+    private FileSyncFileService fileSyncFileService;
+
+    // 0 keeps the files until their instance is deleted
+    @Value("${dataround.link.fileSync.file.retentionDays:30}")
+    private int retentionDays;
+
+    /**
+     * Scheduled task to remove the expired files every hour
+     */
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.HOURS)
+    public void removeExpiredFiles() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        try {
+            fileSyncFileService.removeCreatedBefore(before);
+        } catch (Exception e) {
+            log.error("Failed to remove the file sync files recorded before {}", before, e);
+        }
+    }
+}
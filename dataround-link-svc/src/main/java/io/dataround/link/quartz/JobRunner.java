@@ -30,6 +30,7 @@ import io.dataround.link.utils.SpringContextUtil;
 import io.dataround.link.entity.Job;
 import io.dataround.link.entity.JobInstance;
 import io.dataround.link.entity.enums.JobInstanceStatusEnum;
+import io.dataround.link.service.FileSyncService;
 import io.dataround.link.service.JobInstanceService;
 import io.dataround.link.service.JobService;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +49,11 @@ public class JobRunner extends QuartzJobBean {
     protected void executeInternal(@NonNull JobExecutionContext context) throws JobExecutionException {
         Long jobId = Long.parseLong(context.getJobDetail().getKey().getName());
         log.info("Start execute job: {}, ScheduledFireTime: {}", jobId, context.getScheduledFireTime());
+        // a continuous file sync goes on with its running instance, no instance is recorded for the fire
+        if (SpringContextUtil.getBean(FileSyncService.class).isContinuousRunning(jobId)) {
+            log.info("Job {} has a continuous instance running, skip the fire", jobId);
+            return;
+        }
         JobService jobService = SpringContextUtil.getBean(JobService.class);
         Job job = jobService.getById(jobId);
         // save job instance
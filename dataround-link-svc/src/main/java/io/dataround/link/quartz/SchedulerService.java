@@ -160,6 +160,17 @@ public class SchedulerService {
         }
     }
 
+    /**
+     * Stop firing the triggers of the job until it is scheduled again.
+     */
+    public void pauseJob(Long jobId) {
+        try {
+            getScheduler().pauseJob(new JobKey(jobId.toString()));
+        } catch (SchedulerException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void deleteJob(Job job) {
         JobKey jobKey = new JobKey(getJobKey(job));
         try {
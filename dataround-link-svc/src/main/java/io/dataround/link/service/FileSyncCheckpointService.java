@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.dataround.link.service;
+
+import java.util.Date;
+import java.util.List;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import io.dataround.link.entity.FileSyncCheckpoint;
+
+/**
+ * Service interface for managing file sync checkpoints.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public interface FileSyncCheckpointService extends IService<FileSyncCheckpoint> {
+
+    /**
+     * One page of the checkpoints of the job, by id.
+     *
+     * @param afterId the last id of the previous page, null for the first page
+     */
+    List<FileSyncCheckpoint> listByJobId(Long jobId, Long afterId, int limit);
+
+    /**
+     * Remove the checkpoints of the files done before the given time.
+     */
+    void removeDoneBefore(Long jobId, Date before);
+
+    void removeByJobId(Long jobId);
+}
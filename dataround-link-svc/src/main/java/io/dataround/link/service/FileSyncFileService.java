@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.service;
+
+import java.util.Date;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import io.dataround.link.entity.FileSyncFile;
+
+/**
+ * Service interface for managing the files transferred by file sync job instances.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public interface FileSyncFileService extends IService<FileSyncFile> {
+
+    /**
+     * One page of the files of the instance by id, filtered by status if given.
+     */
+    Page<FileSyncFile> selectPage(Long instanceId, Integer status, Page<FileSyncFile> page);
+
+    void removeByInstanceId(Long instanceId);
+
+    void removeByJobId(Long jobId);
+
+    /**
+     * Remove the files recorded before the given time, whatever their instance.
+     */
+    void removeCreatedBefore(Date before);
+}
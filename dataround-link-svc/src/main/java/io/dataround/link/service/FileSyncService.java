@@ -17,6 +17,7 @@
 
 package io.dataround.link.service;
 
+import io.dataround.link.entity.Connection;
 import io.dataround.link.entity.res.JobRes;
 
 /**
@@ -43,4 +44,27 @@ public interface FileSyncService {
      * @return true if cancelled successfully, false otherwise
      */
     boolean cancelFileSync(Long instanceId);
-} 
\ No newline at end of file
+
+    /**
+     * Whether a continuous instance of the job is running, a schedule must not start another one.
+     *
+     * @param jobId the job id
+     * @return true if a continuous instance of the job is running
+     */
+    boolean isContinuousRunning(Long jobId);
+
+    /**
+     * Apply a changed bandwidth limit to the running instances of a job.
+     *
+     * @param jobId            the job id
+     * @param bandwidthLimitMb MB/s, null or 0 for no limit
+     */
+    void updateJobBandwidthLimit(Long jobId, Integer bandwidthLimitMb);
+
+    /**
+     * Apply the changed bandwidth limit of a connection to the running file syncs using it.
+     *
+     * @param connection the saved connection
+     */
+    void updateConnectionBandwidthLimit(Connection connection);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.dataround.link.service.impl;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+
+import io.dataround.link.entity.FileSyncCheckpoint;
+import io.dataround.link.entity.enums.FileSyncCheckpointStatusEnum;
+import io.dataround.link.mapper.FileSyncCheckpointMapper;
+import io.dataround.link.service.FileSyncCheckpointService;
+
+/**
+ * Implementation of the FileSyncCheckpointService interface.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Service
+public class FileSyncCheckpointServiceImpl extends ServiceImpl<FileSyncCheckpointMapper, FileSyncCheckpoint>
+        implements FileSyncCheckpointService {
+
+    @Override
+    public List<FileSyncCheckpoint> listByJobId(Long jobId, Long afterId, int limit) {
+        LambdaQueryWrapper<FileSyncCheckpoint> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncCheckpoint::getJobId, jobId);
+        queryWrapper.gt(afterId != null, FileSyncCheckpoint::getId, afterId);
+        queryWrapper.orderByAsc(FileSyncCheckpoint::getId);
+        // no count query, the pages are read until one is not full
+        return page(new Page<>(1, limit, false), queryWrapper).getRecords();
+    }
+
+    @Override
+    public void removeDoneBefore(Long jobId, Date before) {
+        LambdaQueryWrapper<FileSyncCheckpoint> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncCheckpoint::getJobId, jobId);
+        queryWrapper.eq(FileSyncCheckpoint::getStatus, FileSyncCheckpointStatusEnum.DONE.getCode());
+        queryWrapper.lt(FileSyncCheckpoint::getUpdateTime, before);
+        remove(queryWrapper);
+    }
+
+    @Override
+    public void removeByJobId(Long jobId) {
+        LambdaQueryWrapper<FileSyncCheckpoint> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncCheckpoint::getJobId, jobId);
+        remove(queryWrapper);
+    }
+}
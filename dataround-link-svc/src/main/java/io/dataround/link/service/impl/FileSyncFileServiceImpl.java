@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.service.impl;
+
+import java.util.Date;
+
+import org.springframework.stereotype.Service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+
+import io.dataround.link.entity.FileSyncFile;
+import io.dataround.link.mapper.FileSyncFileMapper;
+import io.dataround.link.service.FileSyncFileService;
+
+/**
+ * Implementation of the FileSyncFileService interface.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+@Service
+public class FileSyncFileServiceImpl extends ServiceImpl<FileSyncFileMapper, FileSyncFile>
+        implements FileSyncFileService {
+
+    @Override
+    public Page<FileSyncFile> selectPage(Long instanceId, Integer status, Page<FileSyncFile> page) {
+        LambdaQueryWrapper<FileSyncFile> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncFile::getInstanceId, instanceId);
+        queryWrapper.eq(status != null, FileSyncFile::getStatus, status);
+        queryWrapper.orderByAsc(FileSyncFile::getId);
+        return page(page, queryWrapper);
+    }
+
+    @Override
+    public void removeByInstanceId(Long instanceId) {
+        LambdaQueryWrapper<FileSyncFile> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncFile::getInstanceId, instanceId);
+        remove(queryWrapper);
+    }
+
+    @Override
+    public void removeByJobId(Long jobId) {
+        LambdaQueryWrapper<FileSyncFile> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(FileSyncFile::getJobId, jobId);
+        remove(queryWrapper);
+    }
+
+    @Override
+    public void removeCreatedBefore(Date before) {
+        LambdaQueryWrapper<FileSyncFile> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.lt(FileSyncFile::getCreateTime, before);
+        remove(queryWrapper);
+    }
+}
@@ -17,41 +17,86 @@
 
 package io.dataround.link.service.impl;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
 import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
 import io.dataround.link.connector.ConnectorFactory;
+import io.dataround.link.connector.FileChecksum;
 import io.dataround.link.connector.FileConnector;
+import io.dataround.link.connector.FileInfo;
 import io.dataround.link.entity.Connection;
+import io.dataround.link.entity.FileSyncFile;
+import io.dataround.link.entity.Job;
 import io.dataround.link.entity.JobInstance;
 import io.dataround.link.entity.dto.ConnectorDto;
+import io.dataround.link.entity.enums.FileSyncCompressionEnum;
+import io.dataround.link.entity.enums.FileSyncFileStatusEnum;
 import io.dataround.link.entity.enums.JobInstanceStatusEnum;
+import io.dataround.link.entity.enums.JobScheduleTypeEnum;
+import io.dataround.link.entity.res.FileSyncTarget;
 import io.dataround.link.entity.res.JobRes;
+import io.dataround.link.filesync.BandwidthLimiter;
+import io.dataround.link.filesync.ChecksumInputStream;
+import io.dataround.link.filesync.ChunkedTransfer;
+import io.dataround.link.filesync.DeltaTransfer;
+import io.dataround.link.filesync.EndpointLimiter;
+import io.dataround.link.filesync.FanOutOutputStream;
+import io.dataround.link.filesync.FairFileSyncScheduler;
+import io.dataround.link.filesync.FileChangeWatcher;
+import io.dataround.link.filesync.FileCodec;
+import io.dataround.link.filesync.FileConnectorPool;
+import io.dataround.link.filesync.FileListingPipeline;
+import io.dataround.link.filesync.FileRetryPolicy;
+import io.dataround.link.filesync.FileSyncCheckpointManager;
+import io.dataround.link.filesync.FileSyncContext;
+import io.dataround.link.filesync.FileSyncExecutors;
+import io.dataround.link.filesync.FileSyncFileRecorder;
+import io.dataround.link.filesync.FileTransferWindow;
+import io.dataround.link.filesync.IncrementalFileFilter;
+import io.dataround.link.filesync.LocalFileTransfer;
+import io.dataround.link.filesync.PipelinedCopier;
+import io.dataround.link.quartz.SchedulerService;
 import io.dataround.link.service.ConnectionService;
 import io.dataround.link.service.ConnectorService;
+import io.dataround.link.service.FileSyncCheckpointService;
+import io.dataround.link.service.FileSyncFileService;
 import io.dataround.link.service.FileSyncService;
 import io.dataround.link.service.JobInstanceService;
+import io.dataround.link.service.JobService;
 import io.dataround.link.utils.ParamParser;
 import lombok.extern.slf4j.Slf4j;
 
@@ -65,15 +110,110 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class FileSyncServiceImpl implements FileSyncService {
 
-    @Value("${dataround.link.fileSync.minThreadCount:2}")
-    private Integer minThreadCount;
+    private static final long MB = 1024L * 1024L;
+    // checksums compared with the target, the cheaper first
+    private static final List<String> VERIFY_ALGORITHMS = Arrays.asList(FileChecksum.CRC32C, FileChecksum.SHA256);
+    // connection config items sizing the read-ahead buffers of the transfers using the connection
+    private static final String BUFFER_SIZE_CONFIG = "bufferSizeKb";
+    private static final String BUFFER_DEPTH_CONFIG = "bufferDepth";
+    // connection config item limiting the bandwidth of all the file syncs using the connection, in MB/s
+    private static final String BANDWIDTH_LIMIT_CONFIG = "bandwidthLimitMb";
+    // a continuous instance without rescans removes the checkpoints of the files done at this interval
+    private static final long CHECKPOINT_PRUNE_INTERVAL_MS = 10L * 60L * 1000L;
+    // failed files listed in the log of the instance
+    private static final int MAX_LOGGED_FAILED_FILES = 20;
+
     @Value("${dataround.link.fileSync.maxThreadCount:10}")
     private Integer maxThreadCount;
+    // source and target of one file may be the same endpoint, keep enough sessions for both sides
+    @Value("${dataround.link.fileSync.pool.maxSessionsPerEndpoint:20}")
+    private Integer maxSessionsPerEndpoint;
+    @Value("${dataround.link.fileSync.pool.maxIdleSeconds:60}")
+    private Integer maxIdleSeconds;
+    @Value("${dataround.link.fileSync.pool.borrowTimeoutSeconds:300}")
+    private Integer borrowTimeoutSeconds;
+    // files larger than the threshold are transferred as chunks in parallel, 0 disables chunking
+    @Value("${dataround.link.fileSync.chunk.thresholdMb:256}")
+    private Integer chunkThresholdMb;
+    @Value("${dataround.link.fileSync.chunk.sizeMb:16}")
+    private Integer chunkSizeMb;
+    @Value("${dataround.link.fileSync.chunk.parallelism:4}")
+    private Integer chunkParallelism;
+    // files larger than the threshold are patched when the job transfers deltas, in blocks of the size
+    @Value("${dataround.link.fileSync.delta.thresholdMb:64}")
+    private Integer deltaThresholdMb;
+    @Value("${dataround.link.fileSync.delta.blockSizeKb:1024}")
+    private Integer deltaBlockSizeKb;
+    // progress of the file being transferred is recorded every interval bytes
+    @Value("${dataround.link.fileSync.checkpoint.intervalMb:8}")
+    private Integer checkpointIntervalMb;
+    // checkpoints and metrics of a running instance are written to the database at this interval
+    @Value("${dataround.link.fileSync.flushIntervalMs:1000}")
+    private Long flushIntervalMs;
+    // read-ahead of the streamed files, a connection may override them with its bufferSizeKb and bufferDepth
+    @Value("${dataround.link.fileSync.buffer.sizeKb:1024}")
+    private Integer bufferSizeKb;
+    @Value("${dataround.link.fileSync.buffer.depth:4}")
+    private Integer bufferDepth;
+    // idle buffers of each size kept for the next files
+    @Value("${dataround.link.fileSync.buffer.maxIdle:64}")
+    private Integer bufferMaxIdle;
+    // transfers of a file again when its target does not match the source checksum
+    @Value("${dataround.link.fileSync.checksum.maxRetries:1}")
+    private Integer checksumMaxRetries;
+    // a file failing with a network or server error is transferred again after a growing wait
+    @Value("${dataround.link.fileSync.retry.maxAttempts:3}")
+    private Integer retryMaxAttempts;
+    @Value("${dataround.link.fileSync.retry.initialBackoffMs:1000}")
+    private Long retryInitialBackoffMs;
+    @Value("${dataround.link.fileSync.retry.maxBackoffMs:30000}")
+    private Long retryMaxBackoffMs;
+    // the instance fails at once when more files than this fail after their retries, 0 for no limit
+    @Value("${dataround.link.fileSync.retry.maxFailedFiles:100}")
+    private Integer maxFailedFiles;
+    // files listed ahead of the transfers
+    @Value("${dataround.link.fileSync.listing.queueCapacity:10000}")
+    private Integer listingQueueCapacity;
+    // files submitted to the executor at the same time by one instance, 0 for twice maxThreadCount
+    @Value("${dataround.link.fileSync.maxInFlightFiles:0}")
+    private Integer maxInFlightFiles;
+    // workers one instance may use at the same time, 0 for no limit besides the fair share
+    @Value("${dataround.link.fileSync.maxThreadsPerInstance:0}")
+    private Integer maxThreadsPerInstance;
+    // run every transfer on a virtual thread (java 21+), the endpoints limit the concurrency instead of the pool
+    @Value("${dataround.link.fileSync.virtualThreads.enabled:false}")
+    private Boolean virtualThreadsEnabled;
+    @Value("${dataround.link.fileSync.virtualThreads.maxTransfersPerEndpoint:100}")
+    private Integer maxTransfersPerEndpoint;
+    @Value("${dataround.link.fileSync.virtualThreads.maxInFlightFiles:1000}")
+    private Integer virtualMaxInFlightFiles;
+    // a continuous instance looks for changes of the source at this interval
+    @Value("${dataround.link.fileSync.watch.intervalMs:2000}")
+    private Long watchIntervalMs;
+    // a continuous instance lists the whole source again at this interval, for the files rewritten
+    // in place on remote sources and the failed files, 0 to never
+    @Value("${dataround.link.fileSync.watch.rescanIntervalSeconds:600}")
+    private Integer watchRescanIntervalSeconds;
     private ExecutorService executorService;
+    // only set with virtual threads
+    private EndpointLimiter endpointLimiter;
+    private FairFileSyncScheduler fairScheduler;
+    private ScheduledExecutorService flushScheduler;
+    private FileConnectorPool connectorPool;
+    private ExecutorService readerExecutor;
+    // one thread per running continuous instance
+    private ExecutorService continuousExecutor;
+    private PipelinedCopier copier;
+    private FileRetryPolicy retryPolicy;
     // track the cancel flag for each file sync task
     private final Map<Long, AtomicBoolean> cancelFlags = new ConcurrentHashMap<>();
     // track the running file sync tasks
-    private final Map<Long, List<Future<Void>>> runningTasks = new ConcurrentHashMap<>();
+    private final Map<Long, FileTransferWindow> runningTasks = new ConcurrentHashMap<>();
+    // bandwidth shared by the instances of a job, and by all the jobs using a connection
+    private final Map<Long, BandwidthLimiter> jobBandwidthLimiters = new ConcurrentHashMap<>();
+    private final Map<Long, BandwidthLimiter> connectionBandwidthLimiters = new ConcurrentHashMap<>();
+    // the running continuous instance of each job
+    private final Map<Long, Long> continuousInstances = new ConcurrentHashMap<>();
 
     @Autowired
     private ConnectionService connectionService;
@@ -81,16 +221,139 @@ public class FileSyncServiceImpl implements FileSyncService {
     private ConnectorService connectorService;
     @Autowired
     private JobInstanceService jobInstanceService;
+    @Autowired
+    private FileSyncCheckpointService checkpointService;
+    @Autowired
+    private FileSyncFileService fileService;
+    @Lazy
+    @Autowired
+    private JobService jobService;
+    @Lazy
+    @Autowired
+    private SchedulerService schedulerService;
 
     @PostConstruct
     public void init() {
-        this.executorService = new ThreadPoolExecutor(minThreadCount, maxThreadCount, 10L,
-                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        if (virtualThreadsEnabled) {
+            this.executorService = FileSyncExecutors.newVirtualThreadExecutor();
+            if (executorService == null) {
+                log.warn("Virtual threads are not supported by java {}, file sync uses a pool of {} threads",
+                        System.getProperty("java.version"), maxThreadCount);
+            } else {
+                log.info("File sync runs on virtual threads, at most {} transfers per endpoint", maxTransfersPerEndpoint);
+                this.endpointLimiter = new EndpointLimiter(maxTransfersPerEndpoint);
+                maxInFlightFiles = virtualMaxInFlightFiles;
+                // the limiter bounds the transfers, a transfer may hold a session of each side
+                maxSessionsPerEndpoint = Math.max(maxSessionsPerEndpoint, maxTransfersPerEndpoint * 2);
+            }
+        }
+        if (executorService == null) {
+            this.executorService = FileSyncExecutors.newPlatformExecutor(maxThreadCount);
+            if (maxInFlightFiles <= 0) {
+                // keep the workers busy while the completed files are replaced
+                maxInFlightFiles = maxThreadCount * 2;
+            }
+        }
+        // the readers run beside the workers, they must not wait for a worker to be free
+        this.readerExecutor = endpointLimiter != null ? executorService : FileSyncExecutors.newReaderExecutor();
+        this.continuousExecutor = FileSyncExecutors.newContinuousExecutor();
+        this.copier = new PipelinedCopier(readerExecutor, bufferMaxIdle);
+        this.retryPolicy = new FileRetryPolicy(retryMaxAttempts, retryInitialBackoffMs, retryMaxBackoffMs);
+        this.fairScheduler = new FairFileSyncScheduler(executorService);
+        this.connectorPool = new FileConnectorPool(maxSessionsPerEndpoint, maxIdleSeconds * 1000L,
+                borrowTimeoutSeconds * 1000L);
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "file-sync-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+        readerExecutor.shutdownNow();
+        continuousExecutor.shutdownNow();
+        flushScheduler.shutdownNow();
+        connectorPool.close();
     }
 
     @Override
     public boolean executeFileSync(JobRes jobVo, Long instanceId) {
-        long startTime = System.currentTimeMillis();
+        if (!Boolean.TRUE.equals(jobVo.getContinuous())) {
+            return runFileSync(jobVo, instanceId, false);
+        }
+        Long runningId = continuousInstances.putIfAbsent(jobVo.getId(), instanceId);
+        if (runningId != null) {
+            // the running instance already transfers the changes, a schedule must not start another one
+            JobInstance jobInstance = jobInstanceService.getById(instanceId);
+            jobInstance.setEndTime(new Date());
+            jobInstance.setStatus(JobInstanceStatusEnum.CANCELLED.getCode());
+            jobInstance.setLogContent("Continuous instance " + runningId + " of the job is still running");
+            jobInstanceService.updateById(jobInstance);
+            return false;
+        }
+        // the instance runs until it is cancelled, the schedule of the job waits until it ends
+        try {
+            schedulerService.pauseJob(jobVo.getId());
+        } catch (Exception e) {
+            log.warn("Failed to pause the schedule of job {}", jobVo.getId(), e);
+        }
+        try {
+            continuousExecutor.execute(() -> runContinuous(jobVo, instanceId));
+        } catch (RejectedExecutionException e) {
+            continuousInstances.remove(jobVo.getId(), instanceId);
+            rescheduleJob(jobVo.getId());
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isContinuousRunning(Long jobId) {
+        return continuousInstances.containsKey(jobId);
+    }
+
+    /**
+     * Run a continuous instance on its own thread, the scheduler returned when it started so the
+     * failure is recorded here.
+     */
+    private void runContinuous(JobRes jobVo, Long instanceId) {
+        try {
+            runFileSync(jobVo, instanceId, true);
+        } catch (Throwable e) {
+            log.error("instance {} execute failed", instanceId, e);
+            JobInstance jobInstance = jobInstanceService.getById(instanceId);
+            jobInstance.setEndTime(new Date());
+            jobInstance.setStatus(JobInstanceStatusEnum.FAILURE.getCode());
+            jobInstance.setLogContent(ExceptionUtils.getStackTrace(e));
+            jobInstanceService.updateById(jobInstance);
+        } finally {
+            continuousInstances.remove(jobVo.getId(), instanceId);
+            rescheduleJob(jobVo.getId());
+        }
+    }
+
+    /**
+     * Schedule a job again after its continuous instance ended, the next fire of its cron starts a
+     * new instance. The other schedule types started the instance once, they are not fired again.
+     */
+    private void rescheduleJob(Long jobId) {
+        try {
+            Job job = jobService.getById(jobId);
+            if (job != null && job.getScheduleType() == JobScheduleTypeEnum.SCHEDULED.getCode()) {
+                schedulerService.scheduleJob(job);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to schedule job {} again after its continuous instance", jobId, e);
+        }
+    }
+
+    /**
+     * Transfer the files of the source, then the ones added or changed on it until the instance
+     * is cancelled when it is continuous.
+     */
+    private boolean runFileSync(JobRes jobVo, Long instanceId, boolean continuous) {
         Long sourceConnId = jobVo.getSourceConnId();
         Long targetConnId = jobVo.getTargetConnId();
 
@@ -107,130 +370,855 @@ public class FileSyncServiceImpl implements FileSyncService {
         // Find the connector with matching name
         Param sourceParam = ParamParser.from(sourceConn, sourceConnectorDto);
         Param targetParam = ParamParser.from(targetConn, targetConnectorDto);
-        List<String> sourceFiles = getSourceFiles(sourceParam, sourcePath, filePattern, includeSubdirectories);
-        AtomicLong readCount = new AtomicLong(0);
-        AtomicLong writeCount = new AtomicLong(0);
-        AtomicLong readBytes = new AtomicLong(0);
-        AtomicLong writeBytes = new AtomicLong(0);
-
+        FileSyncContext context = new FileSyncContext(instanceId, sourceParam, targetConnId, targetParam, sourcePath,
+                targetPath);
+        // a connection used on both ends is counted once
+        Set<BandwidthLimiter> limiters = new LinkedHashSet<>();
+        limiters.add(bandwidthLimiter(jobBandwidthLimiters, jobVo.getId(), jobVo.getBandwidthLimitMb()));
+        limiters.add(bandwidthLimiter(connectionBandwidthLimiters, sourceConnId, getBandwidthLimitMb(sourceConn)));
+        limiters.add(bandwidthLimiter(connectionBandwidthLimiters, targetConnId, getBandwidthLimitMb(targetConn)));
+        // the files are read once from the source and written to every target
+        if (jobVo.getExtraTargets() != null) {
+            for (FileSyncTarget extraTarget : jobVo.getExtraTargets()) {
+                if (extraTarget.getTargetConnId() == null) {
+                    continue;
+                }
+                Connection extraConn = connectionService.getById(extraTarget.getTargetConnId());
+                context.addTarget(extraConn.getId(),
+                        ParamParser.from(extraConn, connectorService.getConnectorDto(extraConn)),
+                        extraTarget.getTargetPath());
+                limiters.add(bandwidthLimiter(connectionBandwidthLimiters, extraConn.getId(),
+                        getBandwidthLimitMb(extraConn)));
+            }
+        }
+        context.setBandwidthLimiters(new ArrayList<>(limiters));
+        // the larger buffers of all the sides, so that the faster link is kept filled
+        int bufferKb = getConfigInt(sourceParam, BUFFER_SIZE_CONFIG, bufferSizeKb);
+        int depth = getConfigInt(sourceParam, BUFFER_DEPTH_CONFIG, bufferDepth);
+        for (FileSyncContext.Target target : context.getTargets()) {
+            bufferKb = Math.max(bufferKb, getConfigInt(target.getParam(), BUFFER_SIZE_CONFIG, bufferSizeKb));
+            depth = Math.max(depth, getConfigInt(target.getParam(), BUFFER_DEPTH_CONFIG, bufferDepth));
+        }
+        context.setBufferSize(Math.max(1, bufferKb) * 1024);
+        context.setBufferDepth(Math.max(1, depth));
+        context.setVerifyChecksum(Boolean.TRUE.equals(jobVo.getVerifyChecksum()));
+        context.setCompression(FileSyncCompressionEnum.getByCode(jobVo.getCompression()));
+        context.setAtomicWrite(Boolean.TRUE.equals(jobVo.getAtomicWrite()));
+        context.setDeltaTransfer(Boolean.TRUE.equals(jobVo.getDeltaTransfer()));
+        // checkpoints of a failed or cancelled instance of the job are resumed
+        FileSyncCheckpointManager checkpoints = new FileSyncCheckpointManager(jobVo.getId(), instanceId,
+                context.getTargets(), checkpointService);
+        FileSyncFileRecorder files = new FileSyncFileRecorder(jobVo.getId(), instanceId, fileService);
         JobInstance jobInstance = jobInstanceService.getById(instanceId);
-        List<Future<Void>> futures = new ArrayList<>();
+        // the workers only count, the counters are written on a timer instead of once per file
+        ScheduledFuture<?> flushTask = flushScheduler.scheduleWithFixedDelay(() -> {
+            flushProgress(checkpoints, files);
+            flushMetrics(instanceId, context);
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        // the transfers of the instance take turns with the other instances
+        int priority = jobVo.getPriority() == null ? 1 : jobVo.getPriority();
+        FairFileSyncScheduler.Lane lane = fairScheduler.openLane(priority, maxThreadsPerInstance);
+        // the helpers of the chunked transfers count in the share of the instance too
+        context.setExecutor(lane);
+        // a new file is submitted when one completes, whatever the number of files
+        FileTransferWindow window = new FileTransferWindow(context, lane, maxInFlightFiles);
 
         // track the running file sync tasks, and initialize the cancel flag
-        runningTasks.put(instanceId, futures);
-        AtomicBoolean cancelFlag = new AtomicBoolean(false);
+        runningTasks.put(instanceId, window);
+        AtomicBoolean cancelFlag = context.getCancelFlag();
         cancelFlags.put(instanceId, cancelFlag);
-        for (String file : sourceFiles) {
-            Future<Void> future = executorService.submit(new Callable<Void>() {
-                @Override
-                public Void call() throws Exception {
-                    InputStream inputStream = null;
-                    OutputStream outputStream = null;
-                    String srcFile = sourcePath.endsWith("/") ? sourcePath + file : sourcePath + "/" + file;
-                    String targetFile = targetPath.endsWith("/") ? targetPath + file : targetPath + "/" + file;
-                    try (FileConnector srcConnector = ConnectorFactory.createFileConnector(sourceParam);
-                        FileConnector tgtConnector = ConnectorFactory.createFileConnector(targetParam)) {
-                        log.debug("start to sync file: {} -> {}", srcFile, targetFile);
-                        outputStream = tgtConnector.writeFile(targetFile);
-                        inputStream = srcConnector.readFile(srcFile);
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            // check the cancel flag and the thread interrupt status
-                            if (cancelFlag.get() || Thread.currentThread().isInterrupted()) {
-                                log.info("File sync cancelled for file: {} -> {}", srcFile, targetFile);
-                                throw new InterruptedException("File sync cancelled");
-                            }
-                            readBytes.addAndGet(bytesRead);
-                            outputStream.write(buffer, 0, bytesRead);
-                            writeBytes.addAndGet(bytesRead);
-                        }
-                        readCount.addAndGet(1);
-                        writeCount.addAndGet(1);
-                        long duration = System.currentTimeMillis() - startTime;
-                        updateJobInstanceMetrics(jobInstance, readCount, readBytes, writeCount, writeBytes, duration);
-                        return null;
-                    } catch (InterruptedException e) {
-                        // restore the interrupted status
-                        Thread.currentThread().interrupt();
-                        throw e;
-                    } finally {
-                        IOUtils.closeQuietly(inputStream);
-                        IOUtils.closeQuietly(outputStream);
-                    }
-                }
-            });
-            futures.add(future);
-        }
+        // a file found again by a continuous instance while it is transferred is left to the rescan
+        Set<String> transferring = ConcurrentHashMap.newKeySet();
+        FileChangeWatcher watcher = null;
         // If exception occurs, the upper layer will handle it
         try {
-            for (Future<Void> future : futures) {
-                try {
-                    future.get();
-                } catch (Exception e) {
-                    // check if this is a cancellation
-                    if (cancelFlag.get() || e.getCause() instanceof InterruptedException) {
-                        // update the job instance status to cancelled and return
-                        jobInstance.setEndTime(new Date());
-                        jobInstance.setStatus(JobInstanceStatusEnum.CANCELLED.getCode());
-                        jobInstanceService.updateById(jobInstance);
-                        // Return false to indicate cancellation
-                        return false;
-                    }
-                    throw new RuntimeException(e);
-                }
+            if (continuous) {
+                // watch before listing, the files changing during the listing are not missed
+                watcher = FileChangeWatcher.create(context, filePattern, includeSubdirectories);
+            }
+            Date listingStart = new Date();
+            if (submitListing(jobVo, context, window, checkpoints, files, transferring, false) && watcher != null) {
+                watchChanges(jobVo, context, watcher, window, checkpoints, files, transferring, listingStart);
             }
-            // update job instance metrics
+            Throwable failure = window.await();
+            // check if this is a cancellation
+            if (cancelFlag.get() || failure instanceof InterruptedException) {
+                return markCancelled(jobInstance, context);
+            }
+            if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+            if (context.getFailedCount().sum() > 0) {
+                // the checkpoints are kept, the next instance only transfers the failed files
+                return markFailed(jobInstance, context, files);
+            }
+            // every file is transferred, the next instance starts over
+            flushTask.cancel(false);
+            checkpoints.clear();
+            // the final metrics are written together with the status
+            setMetrics(jobInstance, context);
             jobInstance.setEndTime(new Date());
             jobInstance.setStatus(JobInstanceStatusEnum.SUCCESS.getCode());
             jobInstanceService.updateById(jobInstance);
             return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelFlag.set(true);
+            return markCancelled(jobInstance, context);
+        } catch (RuntimeException e) {
+            // stop the transfers still running, the instance failed
+            cancelFlag.set(true);
+            throw e;
+        } catch (Exception e) {
+            cancelFlag.set(true);
+            throw new RuntimeException(e);
         } finally {
+            IOUtils.closeQuietly(watcher);
+            lane.close();
+            // keep the progress of a failed or cancelled instance for the next one
+            flushTask.cancel(false);
+            flushProgress(checkpoints, files);
+            flushMetrics(instanceId, context);
             // remove the task from the tracking map after the task is completed
             runningTasks.remove(instanceId);
             cancelFlags.remove(instanceId);
         }
     }
 
-    private List<String> getSourceFiles(Param sourceParam, String sourcePath, String filePattern, boolean recursive) {
-        try (FileConnector sourceConnector = ConnectorFactory.createFileConnector(sourceParam)) {
-            return sourceConnector.getFiles(sourcePath, filePattern, recursive);
+    /**
+     * List the source and submit the files to transfer.
+     *
+     * @param rescan compare the source with the targets like an incremental job, the checkpoints of
+     *               the files done by a continuous instance do not last
+     * @return false if the instance is cancelled or a transfer failed
+     */
+    private boolean submitListing(JobRes jobVo, FileSyncContext context, FileTransferWindow window,
+            FileSyncCheckpointManager checkpoints, FileSyncFileRecorder files, Set<String> transferring,
+            boolean rescan) throws InterruptedException {
+        Predicate<FileInfo> filter = file -> true;
+        // by target, a file is listed when one of the targets misses it
+        List<Predicate<FileInfo>> targetFilters = null;
+        if (rescan || Boolean.TRUE.equals(jobVo.getIncremental())) {
+            List<Predicate<FileInfo>> filters = new ArrayList<>();
+            for (FileSyncContext.Target target : context.getTargets()) {
+                filters.add(incrementalFilter(context, target, jobVo.getFilePattern(),
+                        jobVo.getIncludeSubdirectories()));
+            }
+            filter = file -> filters.stream().anyMatch(targetFilter -> targetFilter.test(file));
+            targetFilters = filters;
+        }
+        // the transfers start with the first listed files, or the largest ones once they are listed
+        try (FileListingPipeline listing = new FileListingPipeline(context, context.getSourceParam(),
+                context.getSourcePath(), jobVo.getFilePattern(), jobVo.getIncludeSubdirectories(), filter,
+                listingQueueCapacity, Boolean.TRUE.equals(jobVo.getLargestFirst()))) {
+            listing.start();
+            FileInfo file;
+            while ((file = listing.next()) != null) {
+                List<FileSyncContext.Target> targets = context.getTargets();
+                if (targetFilters != null && targets.size() > 1) {
+                    targets = new ArrayList<>();
+                    for (int i = 0; i < targetFilters.size(); i++) {
+                        if (targetFilters.get(i).test(file)) {
+                            targets.add(context.getTargets().get(i));
+                        }
+                    }
+                }
+                if (!submitFile(context, window, checkpoints, files, transferring, file, targets)) {
+                    // cancelled, or a file failed
+                    return false;
+                }
+            }
+            return !window.isStopped();
+        }
+    }
+
+    /**
+     * Submit the files added or changed on the source as they are found, with a full listing
+     * of the source from time to time, until the instance is cancelled or a transfer failed.
+     * The checkpoints of the files done before the previous listing are removed at each listing,
+     * so that the table does not grow with every file the instance ever transferred.
+     *
+     * @param listingStart when the first listing of the instance started
+     */
+    private void watchChanges(JobRes jobVo, FileSyncContext context, FileChangeWatcher watcher,
+            FileTransferWindow window, FileSyncCheckpointManager checkpoints, FileSyncFileRecorder files,
+            Set<String> transferring, Date listingStart) throws InterruptedException {
+        log.info("File sync instance {} watches {} for changes", context.getInstanceId(), context.getSourcePath());
+        long rescanInterval = watchRescanIntervalSeconds * 1000L;
+        // without rescans the checkpoints are removed at the same pace anyway
+        long pruneInterval = rescanInterval > 0 ? rescanInterval : CHECKPOINT_PRUNE_INTERVAL_MS;
+        long nextPrune = System.currentTimeMillis() + pruneInterval;
+        Date pruneBefore = listingStart;
+        while (!window.isStopped()) {
+            List<FileInfo> changed;
+            try {
+                changed = watcher.poll(watchIntervalMs);
+            } catch (InterruptedException e) {
+                if (context.getCancelFlag().get()) {
+                    return;
+                }
+                throw e;
+            } catch (Exception e) {
+                if (!FileRetryPolicy.isRetryable(e)) {
+                    throw new RuntimeException("Failed to watch source path " + context.getSourcePath(), e);
+                }
+                log.warn("Failed to watch source path {} of instance {}, poll again", context.getSourcePath(),
+                        context.getInstanceId(), e);
+                continue;
+            }
+            for (FileInfo file : changed) {
+                // the checkpoints skip a file whose size and modified time were already transferred
+                if (!submitFile(context, window, checkpoints, files, transferring, file, context.getTargets())) {
+                    return;
+                }
+            }
+            if (System.currentTimeMillis() >= nextPrune) {
+                // the files done before the previous listing are found by comparing with the targets
+                checkpoints.removeDoneBefore(pruneBefore);
+                pruneBefore = new Date();
+                if (rescanInterval > 0
+                        && !submitListing(jobVo, context, window, checkpoints, files, transferring, true)) {
+                    return;
+                }
+                nextPrune = System.currentTimeMillis() + pruneInterval;
+            }
+        }
+    }
+
+    /**
+     * Submit the transfer of one file, waiting for a free slot of the window.
+     *
+     * @param targets the targets to write the file to
+     * @return false if the instance is cancelled or a transfer failed
+     */
+    private boolean submitFile(FileSyncContext context, FileTransferWindow window,
+            FileSyncCheckpointManager checkpoints, FileSyncFileRecorder files, Set<String> transferring,
+            FileInfo sourceInfo, List<FileSyncContext.Target> targets) throws InterruptedException {
+        if (!transferring.add(sourceInfo.getPath())) {
+            return true;
+        }
+        boolean submitted = window.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                EndpointLimiter.Permit permit = null;
+                try {
+                    if (endpointLimiter != null) {
+                        // virtual threads are unbounded, wait for a slot of every endpoint
+                        List<Param> endpoints = new ArrayList<>();
+                        endpoints.add(context.getSourceParam());
+                        targets.forEach(target -> endpoints.add(target.getParam()));
+                        permit = endpointLimiter.acquire(endpoints);
+                    }
+                    if (syncFileWithRetry(context, checkpoints, files, sourceInfo, targets)) {
+                        context.getReadCount().increment();
+                    }
+                    return null;
+                } catch (InterruptedException e) {
+                    // restore the interrupted status
+                    Thread.currentThread().interrupt();
+                    throw e;
+                } finally {
+                    transferring.remove(sourceInfo.getPath());
+                    if (permit != null) {
+                        permit.close();
+                    }
+                }
+            }
+        });
+        if (!submitted) {
+            transferring.remove(sourceInfo.getPath());
+        }
+        return submitted;
+    }
+
+    /**
+     * Update the job instance status to cancelled.
+     *
+     * @return false to indicate cancellation
+     */
+    private boolean markCancelled(JobInstance jobInstance, FileSyncContext context) {
+        setMetrics(jobInstance, context);
+        jobInstance.setEndTime(new Date());
+        jobInstance.setStatus(JobInstanceStatusEnum.CANCELLED.getCode());
+        jobInstanceService.updateById(jobInstance);
+        return false;
+    }
+
+    /**
+     * Update the job instance status to failed, with the files which failed after their retries.
+     *
+     * @return false to indicate failure
+     */
+    private boolean markFailed(JobInstance jobInstance, FileSyncContext context, FileSyncFileRecorder files) {
+        long failedCount = context.getFailedCount().sum();
+        StringBuilder logContent = new StringBuilder();
+        logContent.append(failedCount).append(" files failed after ").append(retryPolicy.getMaxAttempts())
+                .append(" attempts, they are transferred again by the next run:");
+        try {
+            files.flush();
+            // one more file than logged tells whether there are more, without a count query
+            List<FileSyncFile> failedFiles = fileService.selectPage(context.getInstanceId(),
+                    FileSyncFileStatusEnum.FAILED.getCode(), new Page<>(1, MAX_LOGGED_FAILED_FILES + 1, false))
+                    .getRecords();
+            List<FileSyncContext.Target> targets = context.getTargets();
+            failedFiles.stream().limit(MAX_LOGGED_FAILED_FILES).forEach(file -> {
+                logContent.append('\n');
+                // the files of the other targets are told apart by their target path
+                int index = file.getTargetIndex() == null ? 0 : file.getTargetIndex();
+                if (targets.size() > 1 && index < targets.size()) {
+                    logContent.append(context.getTargetFile(targets.get(index), file.getFilePath()));
+                } else {
+                    logContent.append(file.getFilePath());
+                }
+                logContent.append(": ").append(file.getMessage());
+            });
+            if (failedFiles.size() > MAX_LOGGED_FAILED_FILES) {
+                logContent.append("\n...");
+            }
+        } catch (Exception e) {
+            log.warn("Failed to list the failed files of instance {}", context.getInstanceId(), e);
+        }
+        setMetrics(jobInstance, context);
+        jobInstance.setEndTime(new Date());
+        jobInstance.setStatus(JobInstanceStatusEnum.FAILURE.getCode());
+        jobInstance.setLogContent(logContent.toString());
+        jobInstanceService.updateById(jobInstance);
+        return false;
+    }
+
+    /**
+     * Sync one file, retrying the failures which may not happen again. A file failing after its
+     * retries is recorded as failed and the other files go on, unless too many files failed.
+     * Only the targets which did not get the file yet are written again by a retry.
+     *
+     * @return false if the file was already transferred by a previous instance, or failed
+     */
+    private boolean syncFileWithRetry(FileSyncContext context, FileSyncCheckpointManager checkpoints,
+            FileSyncFileRecorder files, FileInfo sourceInfo, List<FileSyncContext.Target> targets) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return syncFile(context, checkpoints, files, sourceInfo, targets);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException || context.isCancelled()) {
+                    throw e;
+                }
+                if (retryPolicy.shouldRetry(e, attempt)) {
+                    long backoff = retryPolicy.getBackoffMillis(attempt);
+                    log.warn("Failed to sync file {}, attempt {} of {}, retry in {} ms", sourceInfo.getPath(), attempt,
+                            retryPolicy.getMaxAttempts(), backoff, e);
+                    // a resumable transfer goes on from its last checkpoint
+                    context.sleep(TimeUnit.MILLISECONDS.toNanos(backoff));
+                    continue;
+                }
+                log.error("Failed to sync file {} after {} attempts", sourceInfo.getPath(), attempt, e);
+                for (FileSyncContext.Target target : targets) {
+                    if (!checkpoints.isDone(target.getIndex(), sourceInfo.getPath(), sourceInfo)) {
+                        files.failed(target.getIndex(), sourceInfo.getPath(), sourceInfo.getSize(),
+                                ExceptionUtils.getRootCauseMessage(e));
+                        context.getFailedCount().increment();
+                    }
+                }
+                if (maxFailedFiles > 0 && context.getFailedCount().sum() > maxFailedFiles) {
+                    throw new IOException("More than " + maxFailedFiles + " files failed, the last one "
+                            + sourceInfo.getPath(), e);
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Sync one file to the targets which do not have it yet, a file written to several targets is
+     * read once from the source. A target failing does not stop the others, the failure is thrown
+     * once the other targets are done.
+     *
+     * @param context     the job instance context
+     * @param checkpoints progress of the job
+     * @param files       results of the files of the instance
+     * @param sourceInfo  the listed source file, path relative to the source directory
+     * @param targets     the targets to write the file to
+     * @return false if the file was already transferred by a previous instance
+     */
+    private boolean syncFile(FileSyncContext context, FileSyncCheckpointManager checkpoints,
+            FileSyncFileRecorder files, FileInfo sourceInfo, List<FileSyncContext.Target> targets) throws Exception {
+        String file = sourceInfo.getPath();
+        List<FileSyncContext.Target> pending = new ArrayList<>(targets.size());
+        for (FileSyncContext.Target target : targets) {
+            if (!checkpoints.isDone(target.getIndex(), file, sourceInfo)) {
+                pending.add(target);
+            }
+        }
+        if (pending.isEmpty()) {
+            log.debug("skip file transferred by a previous instance: {}", context.getSourceFile(file));
+            return false;
+        }
+        if (pending.size() == 1) {
+            FileSyncContext.Target target = pending.get(0);
+            String writeFile = getWriteFile(context, target, file);
+            Map<String, String> checksums = transferFile(context, target, checkpoints, sourceInfo, writeFile, true);
+            completeFile(context, target, checkpoints, files, sourceInfo, writeFile, checksums);
+            return true;
+        }
+        List<String> writeFiles = new ArrayList<>(pending.size());
+        for (FileSyncContext.Target target : pending) {
+            writeFiles.add(getWriteFile(context, target, file));
+        }
+        Exception[] failures = new Exception[pending.size()];
+        Map<String, String> checksums = transferFanOut(context, pending, checkpoints, sourceInfo, writeFiles, failures);
+        Exception failure = null;
+        for (int i = 0; i < pending.size(); i++) {
+            FileSyncContext.Target target = pending.get(i);
+            try {
+                if (failures[i] != null) {
+                    throw failures[i];
+                }
+                completeFile(context, target, checkpoints, files, sourceInfo, writeFiles.get(i), checksums);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException || context.isCancelled()) {
+                    throw e;
+                }
+                log.warn("Failed to sync file {} to target {}", file, target.getPath(), e);
+                if (failure == null) {
+                    failure = e;
+                } else if (failure != e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return true;
+    }
+
+    /**
+     * Readers of the target only see complete files when the bytes go to a temporary file.
+     */
+    private String getWriteFile(FileSyncContext context, FileSyncContext.Target target, String file) {
+        String targetFile = context.getTargetFile(target, file);
+        return context.isAtomicWrite() ? context.getTempFile(targetFile) : targetFile;
+    }
+
+    /**
+     * Verify the file written to the target, transferring it again from the start while it does not
+     * match the source checksum, then rename it to the target file and record it.
+     *
+     * @param writeFile the file written, the target file or its temporary file
+     * @param checksums checksums of the transfer, by algorithm
+     */
+    private void completeFile(FileSyncContext context, FileSyncContext.Target target,
+            FileSyncCheckpointManager checkpoints, FileSyncFileRecorder files, FileInfo sourceInfo,
+            String writeFile, Map<String, String> checksums) throws Exception {
+        String file = sourceInfo.getPath();
+        String srcFile = context.getSourceFile(file);
+        String mismatch;
+        int attempts = 0;
+        while ((mismatch = verifyChecksum(context, target, srcFile, writeFile, checksums)) != null) {
+            if (attempts++ >= checksumMaxRetries) {
+                throw new IOException("Checksum mismatch of file " + writeFile + ": " + mismatch);
+            }
+            log.warn("Checksum mismatch of file {}, transfer it again: {}", writeFile, mismatch);
+            checksums = transferFile(context, target, checkpoints, sourceInfo, writeFile, false);
+        }
+        if (context.isAtomicWrite()) {
+            try (FileConnectorPool.Lease tgtLease = connectorPool.borrow(target.getParam())) {
+                tgtLease.get().rename(writeFile, context.getTargetFile(target, file));
+            }
+        }
+        checkpoints.done(target.getIndex(), file);
+        files.success(target.getIndex(), file, sourceInfo.getSize(), checksums.get(FileChecksum.CRC32C));
+        context.getWriteCount().increment();
+    }
+
+    /**
+     * Transfer one file, large files already on the target are patched with their changed blocks
+     * when the job transfers deltas, local to local copies are done by the kernel, the servers copy
+     * the file themselves when their connectors allow it, large files are split into chunks
+     * transferred by several workers, other files are streamed, hashed and compressed on the way,
+     * and resume from the checkpoint of a previous instance.
+     *
+     * @param targetFile the file written, the target file or its temporary file
+     * @param resume     whether to resume from the checkpoint or patch the target, false transfers
+     *                   the whole file
+     * @return checksums of the whole file computed during the transfer, by algorithm, empty
+     *         when the bytes did not pass through one stream
+     */
+    private Map<String, String> transferFile(FileSyncContext context, FileSyncContext.Target target,
+            FileSyncCheckpointManager checkpoints, FileInfo sourceInfo, String targetFile, boolean resume)
+            throws Exception {
+        String file = sourceInfo.getPath();
+        String srcFile = context.getSourceFile(file);
+        int index = target.getIndex();
+        // compressed files go through one stream, with offsets which do not match the source
+        boolean compressed = context.getCompression() != FileSyncCompressionEnum.NONE;
+        // a temporary file has nothing to patch, an interrupted transfer is resumed instead
+        if (resume && !compressed && context.isDeltaTransfer() && !context.isAtomicWrite() && deltaThresholdMb > 0
+                && sourceInfo.getSize() >= deltaThresholdMb * MB && DeltaTransfer.isPatchable(target.getParam())
+                && checkpoints.getCommittedBytes(index, file, sourceInfo) == 0L) {
+            checkpoints.start(index, file, sourceInfo, 0L);
+            DeltaTransfer delta = new DeltaTransfer(context, connectorPool, target.getParam(), srcFile, targetFile,
+                    sourceInfo.getSize(), deltaBlockSizeKb * 1024, inlineChecksums(context,
+                            Collections.singletonList(target)));
+            if (delta.execute(position -> checkpoints.commit(index, file, position), checkpointIntervalMb * MB)) {
+                return delta.getChecksums();
+            }
+        }
+        // the local and chunked transfers do not record partial progress, they start over
+        if (!compressed && LocalFileTransfer.isLocalToLocal(context.getSourceParam(), target.getParam())) {
+            checkpoints.start(index, file, sourceInfo, 0L);
+            LocalFileTransfer.copy(context, srcFile, targetFile);
+            return Collections.emptyMap();
+        }
+        // read before the server copy, a refused copy falls back to the stream which resumes from it
+        long offset = resume && !compressed ? checkpoints.getCommittedBytes(index, file, sourceInfo) : 0L;
+        // a bandwidth limit only applies to the bytes passing through this node
+        if (!compressed && !target.isServerCopyRefused() && !context.isThrottled()
+                && context.getSourceParam().getName().equalsIgnoreCase(target.getParam().getName())) {
+            if (copyOnServer(context, target, srcFile, targetFile)) {
+                checkpoints.start(index, file, sourceInfo, 0L);
+                context.getRawBytes().add(sourceInfo.getSize());
+                return Collections.emptyMap();
+            }
+            // the same for every file of the target
+            target.setServerCopyRefused(true);
+        }
+        if (!compressed && chunkThresholdMb > 0 && sourceInfo.getSize() >= chunkThresholdMb * MB) {
+            checkpoints.start(index, file, sourceInfo, 0L);
+            new ChunkedTransfer(context, connectorPool, target.getParam(), srcFile, targetFile, sourceInfo.getSize(),
+                    chunkSizeMb * MB, chunkParallelism).execute(context.getExecutor());
+            return Collections.emptyMap();
+        }
+        // pooled connectors keep their session open, so only the first file of a worker pays the login
+        try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam());
+            FileConnectorPool.Lease tgtLease = connectorPool.borrow(target.getParam())) {
+            InputStream inputStream = null;
+            OutputStream outputStream = null;
+            // the stream of the connector, aborted when the transfer fails
+            OutputStream writeStream = null;
+            try {
+                if (offset > 0) {
+                    // committed bytes may not have reached the target before the previous instance stopped
+                    FileInfo targetInfo = tgtLease.get().getFileInfo(targetFile);
+                    offset = targetInfo == null ? 0L : Math.min(offset, targetInfo.getSize());
+                }
+                checkpoints.start(index, file, sourceInfo, offset);
+                ChecksumInputStream checksumStream = null;
+                if (offset > 0) {
+                    log.info("resume to sync file from offset {}: {} -> {}", offset, srcFile, targetFile);
+                    writeStream = tgtLease.get().writeFile(targetFile, offset);
+                    outputStream = FileCodec.metered(writeStream, context.getWriteBytes());
+                    inputStream = FileCodec.metered(srcLease.get().readFile(srcFile, offset), context.getReadBytes());
+                } else {
+                    log.debug("start to sync file: {} -> {}", srcFile, targetFile);
+                    writeStream = tgtLease.get().writeFile(targetFile);
+                    outputStream = FileCodec.metered(writeStream, context.getWriteBytes());
+                    // the checksum is the one of the source file, compressed or not
+                    checksumStream = new ChecksumInputStream(
+                            FileCodec.metered(srcLease.get().readFile(srcFile), context.getReadBytes()),
+                            inlineChecksums(context, Collections.singletonList(target)));
+                    inputStream = checksumStream;
+                }
+                inputStream = FileCodec.wrapSource(context.getCompression(), inputStream, context.getBufferSize());
+                outputStream = FileCodec.wrapTarget(context.getCompression(), outputStream, context.getBufferSize());
+                long checkpointInterval = checkpointIntervalMb * MB;
+                long[] committed = {offset};
+                OutputStream targetStream = outputStream;
+                // the source is read ahead while the buffers before are written
+                copier.copy(context, inputStream, outputStream, sourceInfo.getSize() - offset, offset,
+                        context.getBufferSize(), context.getBufferDepth(), position -> {
+                            // a compressed file can not be resumed, its progress is not recorded
+                            if (!compressed && position - committed[0] >= checkpointInterval) {
+                                targetStream.flush();
+                                checkpoints.commit(index, file, position);
+                                committed[0] = position;
+                            }
+                        });
+                // close the streams before the connectors go back to the pool
+                inputStream.close();
+                outputStream.close();
+                // a resumed file was only partly read
+                return checksumStream == null ? Collections.emptyMap() : checksumStream.getValues();
+            } catch (Exception e) {
+                // closing the streams below must not commit the partial file
+                FileCodec.abort(writeStream);
+                // the session state is unknown after a failed transfer, do not reuse it
+                srcLease.invalidate();
+                tgtLease.invalidate();
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+                IOUtils.closeQuietly(outputStream);
+            }
+        }
+    }
+
+    /**
+     * Copy one file with the connectors, on the server when the source and the target are the same
+     * server or between the servers, so that its bytes do not pass through this node.
+     *
+     * @return false if the connectors can not copy files this way
+     */
+    private boolean copyOnServer(FileSyncContext context, FileSyncContext.Target target, String srcFile,
+            String targetFile) throws Exception {
+        try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam());
+            FileConnectorPool.Lease tgtLease = connectorPool.borrow(target.getParam())) {
+            try {
+                if (!srcLease.get().copyTo(tgtLease.get(), srcFile, targetFile)) {
+                    log.info("Files of instance {} can not be copied between the servers, they are streamed to {}",
+                            context.getInstanceId(), target.getPath());
+                    return false;
+                }
+                log.debug("copied file on the server side: {} -> {}", srcFile, targetFile);
+                return true;
+            } catch (Exception e) {
+                srcLease.invalidate();
+                tgtLease.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Read one file once and write it to several targets through the same buffers, the file is
+     * compressed once for all of them. The transfer starts over on every target, each target may
+     * have stopped at another offset. A target failing is left out while the others go on.
+     *
+     * @param writeFiles the files written, by target
+     * @param failures   filled with the failure of each target, null for the targets written
+     * @return checksums of the whole source file computed during the transfer, by algorithm
+     */
+    private Map<String, String> transferFanOut(FileSyncContext context, List<FileSyncContext.Target> targets,
+            FileSyncCheckpointManager checkpoints, FileInfo sourceInfo, List<String> writeFiles,
+            Exception[] failures) throws Exception {
+        String file = sourceInfo.getPath();
+        String srcFile = context.getSourceFile(file);
+        log.debug("start to sync file to {} targets: {}", targets.size(), srcFile);
+        List<FileConnectorPool.Lease> tgtLeases = new ArrayList<>(targets.size());
+        List<OutputStream> branches = new ArrayList<>(targets.size());
+        // the streams of the connectors, aborted when the transfer fails
+        List<OutputStream> writeStreams = new ArrayList<>(targets.size());
+        InputStream inputStream = null;
+        OutputStream outputStream = null;
+        FanOutOutputStream fanOut = null;
+        try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam())) {
+            try {
+                for (int i = 0; i < targets.size(); i++) {
+                    FileSyncContext.Target target = targets.get(i);
+                    checkpoints.start(target.getIndex(), file, sourceInfo, 0L);
+                    FileConnectorPool.Lease tgtLease = null;
+                    OutputStream writeStream = null;
+                    OutputStream branch = null;
+                    try {
+                        tgtLease = connectorPool.borrow(target.getParam());
+                        writeStream = tgtLease.get().writeFile(writeFiles.get(i));
+                        branch = FileCodec.metered(writeStream, context.getWriteBytes());
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        // the other targets still get the file
+                        failures[i] = e;
+                        if (tgtLease != null) {
+                            tgtLease.invalidate();
+                        }
+                    } finally {
+                        tgtLeases.add(tgtLease);
+                    }
+                    writeStreams.add(writeStream);
+                    branches.add(branch);
+                }
+                if (branches.stream().allMatch(branch -> branch == null)) {
+                    return Collections.emptyMap();
+                }
+                ChecksumInputStream checksumStream = new ChecksumInputStream(
+                        FileCodec.metered(srcLease.get().readFile(srcFile), context.getReadBytes()),
+                        inlineChecksums(context, targets));
+                inputStream = FileCodec.wrapSource(context.getCompression(), checksumStream, context.getBufferSize());
+                // the writes of the targets run on the readers, beside the workers
+                fanOut = new FanOutOutputStream(branches, readerExecutor);
+                outputStream = FileCodec.wrapTarget(context.getCompression(), fanOut, context.getBufferSize());
+                copier.copy(context, inputStream, outputStream, sourceInfo.getSize(), 0L, context.getBufferSize(),
+                        context.getBufferDepth(), position -> { });
+                inputStream.close();
+                outputStream.close();
+                for (int i = 0; i < failures.length; i++) {
+                    if (failures[i] == null) {
+                        failures[i] = fanOut.getFailure(i);
+                    }
+                }
+                return checksumStream.getValues();
+            } catch (Exception e) {
+                // closing the streams below must not commit the partial files
+                writeStreams.forEach(FileCodec::abort);
+                srcLease.invalidate();
+                for (FileConnectorPool.Lease tgtLease : tgtLeases) {
+                    if (tgtLease != null) {
+                        tgtLease.invalidate();
+                    }
+                }
+                throw e;
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+                IOUtils.closeQuietly(outputStream);
+                for (int i = 0; i < tgtLeases.size(); i++) {
+                    FileConnectorPool.Lease tgtLease = tgtLeases.get(i);
+                    if (tgtLease == null) {
+                        continue;
+                    }
+                    // the session of a failed target is not reused
+                    if (fanOut != null && fanOut.getFailure(i) != null) {
+                        tgtLease.invalidate();
+                    }
+                    tgtLease.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * CRC32C is recorded for every streamed file, SHA-256 is added when it is verified on a
+     * remote target, which can only run sha256sum.
+     */
+    private List<FileChecksum> inlineChecksums(FileSyncContext context, List<FileSyncContext.Target> targets) {
+        List<FileChecksum> checksums = new ArrayList<>(2);
+        checksums.add(FileChecksum.of(FileChecksum.CRC32C));
+        if (context.isVerifyChecksum() && context.getCompression() == FileSyncCompressionEnum.NONE
+                && targets.stream().anyMatch(target ->
+                        !ConnectorNameConstants.LOCAL_FILE.equalsIgnoreCase(target.getParam().getName()))) {
+            checksums.add(FileChecksum.of(FileChecksum.SHA256));
+        }
+        return checksums;
+    }
+
+    /**
+     * Compare the checksum of the target file computed on the target side with the one of the
+     * transfer, or with the one computed on the source side when the transfer computed none.
+     *
+     * @return a description of the mismatch, null if the files match or can not be compared
+     */
+    private String verifyChecksum(FileSyncContext context, FileSyncContext.Target target, String srcFile,
+            String targetFile, Map<String, String> checksums) throws Exception {
+        if (!context.isVerifyChecksum()) {
+            return null;
+        }
+        if (context.getCompression() != FileSyncCompressionEnum.NONE) {
+            log.debug("compressed file can not be compared with the source: {}", targetFile);
+            return null;
+        }
+        try (FileConnectorPool.Lease tgtLease = connectorPool.borrow(target.getParam())) {
+            for (String algorithm : VERIFY_ALGORITHMS) {
+                String expected = checksums.get(algorithm);
+                if (expected == null) {
+                    try (FileConnectorPool.Lease srcLease = connectorPool.borrow(context.getSourceParam())) {
+                        expected = srcLease.get().getChecksum(srcFile, algorithm);
+                    }
+                }
+                if (expected == null) {
+                    continue;
+                }
+                String actual = tgtLease.get().getChecksum(targetFile, algorithm);
+                if (actual == null) {
+                    continue;
+                }
+                return expected.equals(actual) ? null
+                        : algorithm + " of the source " + expected + ", of the target " + actual;
+            }
+        }
+        log.debug("no checksum to verify file: {}", targetFile);
+        return null;
+    }
+
+    private void flushProgress(FileSyncCheckpointManager checkpoints, FileSyncFileRecorder files) {
+        try {
+            checkpoints.flush();
+        } catch (Exception e) {
+            // the progress is flushed again on the next tick
+            log.warn("Failed to flush file sync checkpoints", e);
+        }
+        try {
+            files.flush();
+        } catch (Exception e) {
+            log.warn("Failed to flush file sync file records", e);
+        }
+    }
+
+    private List<FileInfo> listFiles(Param param, String path, String filePattern, boolean recursive) {
+        try (FileConnector connector = ConnectorFactory.createFileConnector(param)) {
+            return connector.listFiles(path, filePattern, recursive);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void updateJobInstanceMetrics(JobInstance jobInstance, AtomicLong readCount, AtomicLong readBytes,
-            AtomicLong writeCount, AtomicLong writeBytes, long duration) {
-        jobInstance.setReadCount(readCount.get());
-        jobInstance.setReadBytes(readBytes.get());
-        jobInstance.setWriteCount(writeCount.get());
-        jobInstance.setWriteBytes(writeBytes.get());
-        jobInstance.setReadQps(readBytes.get() / (duration / 1000.0));
-        jobInstance.setWriteQps(writeBytes.get() / (duration / 1000.0));
-        jobInstanceService.updateById(jobInstance);
+    /**
+     * Filter accepting the source files whose copy on the target is missing or out of date.
+     */
+    private Predicate<FileInfo> incrementalFilter(FileSyncContext context, FileSyncContext.Target target,
+            String filePattern, boolean recursive) {
+        FileSyncCompressionEnum compression = context.getCompression();
+        List<FileInfo> targetFiles;
+        try {
+            // renamed target files may not match the pattern of the source files
+            targetFiles = listFiles(target.getParam(), target.getPath(),
+                    compression == FileSyncCompressionEnum.NONE ? filePattern : null, recursive);
+        } catch (Exception e) {
+            // the target directory does not exist yet on the first run
+            log.warn("Failed to list target path {}, transfer all the files", target.getPath(), e);
+            return file -> true;
+        }
+        if (compression == FileSyncCompressionEnum.NONE) {
+            return new IncrementalFileFilter(targetFiles);
+        }
+        return new IncrementalFileFilter(targetFiles, file -> FileCodec.getTargetName(compression, file), false);
+    }
+
+    /**
+     * Write the metrics of a running instance if they changed since the last flush. Only the
+     * metric columns are updated, the status is left to the thread running the instance.
+     */
+    private void flushMetrics(Long instanceId, FileSyncContext context) {
+        try {
+            if (!context.checkMetricsChanged()) {
+                return;
+            }
+            JobInstance metrics = new JobInstance();
+            metrics.setId(instanceId);
+            setMetrics(metrics, context);
+            jobInstanceService.updateById(metrics);
+        } catch (Exception e) {
+            // the metrics are flushed again on the next tick
+            log.warn("Failed to flush file sync metrics of instance: {}", instanceId, e);
+        }
+    }
+
+    private void setMetrics(JobInstance jobInstance, FileSyncContext context) {
+        long duration = Math.max(1L, System.currentTimeMillis() - context.getStartTime());
+        long readBytes = context.getReadBytes().sum();
+        long writeBytes = context.getWriteBytes().sum();
+        jobInstance.setReadCount(context.getReadCount().sum());
+        jobInstance.setReadBytes(readBytes);
+        jobInstance.setWriteCount(context.getWriteCount().sum());
+        jobInstance.setWriteBytes(writeBytes);
+        jobInstance.setRawBytes(context.getRawBytes().sum());
+        jobInstance.setReadQps(readBytes / (duration / 1000.0));
+        jobInstance.setWriteQps(writeBytes / (duration / 1000.0));
     }
 
     @Override
     public boolean cancelFileSync(Long instanceId) {
-        List<Future<Void>> futures = runningTasks.get(instanceId);
-        if (futures == null || futures.isEmpty()) {
+        FileTransferWindow window = runningTasks.get(instanceId);
+        if (window == null) {
             log.warn("No running file sync task found for instance: {}", instanceId);
             return false;
         }
         AtomicBoolean cancelFlag = cancelFlags.get(instanceId);
         log.info("Cancelling file sync task for instance: {}", instanceId);
-        // set the cancel flag, so that the file being transferred can respond to the
-        // cancel
+        // set the cancel flag, so that the listing and the file being transferred can respond
+        // to the cancel
         if (cancelFlag != null) {
             cancelFlag.set(true);
         }
-        int cancelledCount = 0;
-        for (Future<Void> future : futures) {
-            if (future.cancel(true)) {
-                cancelledCount++;
-            }
-        }
+        // only the files in flight have a task, the others are never submitted
+        int cancelledCount = window.cancel();
         // remove the task from the tracking map
         runningTasks.remove(instanceId);
         cancelFlags.remove(instanceId);
@@ -245,7 +1233,68 @@ public class FileSyncServiceImpl implements FileSyncService {
         } catch (Exception e) {
             log.error("Failed to update job instance status to cancelled for instance: {}", instanceId, e);
         }
-        log.info("Cancelled {} out of {} file sync tasks for instance: {}", cancelledCount, futures.size(), instanceId);
-        return cancelledCount > 0;
+        log.info("Cancelled {} file sync tasks in flight for instance: {}", cancelledCount, instanceId);
+        return true;
+    }
+
+    @Override
+    public void updateJobBandwidthLimit(Long jobId, Integer bandwidthLimitMb) {
+        BandwidthLimiter limiter = jobBandwidthLimiters.get(jobId);
+        if (limiter != null) {
+            limiter.setRate(toBytesPerSecond(bandwidthLimitMb));
+            log.info("Bandwidth limit of file sync job {} changed to {} MB/s", jobId, bandwidthLimitMb);
+        }
+    }
+
+    @Override
+    public void updateConnectionBandwidthLimit(Connection connection) {
+        BandwidthLimiter limiter = connectionBandwidthLimiters.get(connection.getId());
+        if (limiter != null) {
+            Integer bandwidthLimitMb = getBandwidthLimitMb(connection);
+            limiter.setRate(toBytesPerSecond(bandwidthLimitMb));
+            log.info("Bandwidth limit of connection {} changed to {} MB/s", connection.getId(), bandwidthLimitMb);
+        }
+    }
+
+    /**
+     * Limiter kept for the id, its rate is refreshed from the configuration of the instance starting.
+     */
+    private BandwidthLimiter bandwidthLimiter(Map<Long, BandwidthLimiter> limiters, Long id, Integer bandwidthLimitMb) {
+        long rate = toBytesPerSecond(bandwidthLimitMb);
+        BandwidthLimiter limiter = limiters.computeIfAbsent(id, key -> new BandwidthLimiter(rate));
+        if (limiter.getRate() != rate) {
+            limiter.setRate(rate);
+        }
+        return limiter;
+    }
+
+    private Integer getBandwidthLimitMb(Connection connection) {
+        String value = connection.getConfig() == null ? null : connection.getConfig().get(BANDWIDTH_LIMIT_CONFIG);
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} of connection {}: {}", BANDWIDTH_LIMIT_CONFIG, connection.getId(), value);
+            return null;
+        }
+    }
+
+    private int getConfigInt(Param param, String key, int defaultValue) {
+        String value = param.getConfig() == null ? null : param.getConfig().get(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} of {} connection: {}", key, param.getName(), value);
+            return defaultValue;
+        }
+    }
+
+    private static long toBytesPerSecond(Integer bandwidthLimitMb) {
+        return bandwidthLimitMb == null || bandwidthLimitMb <= 0 ? 0L : bandwidthLimitMb * MB;
     }
-}
\ No newline at end of file
+}
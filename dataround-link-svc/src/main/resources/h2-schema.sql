@@ -94,12 +94,51 @@ CREATE TABLE IF NOT EXISTS job_instance (
     write_qps DOUBLE PRECISION NULL,
     read_bytes BIGINT NULL,
     write_bytes BIGINT NULL,
+    raw_bytes BIGINT NULL,
     log_content CLOB NULL,
     update_by BIGINT NOT NULL,
     update_time TIMESTAMP WITH TIME ZONE NOT NULL,
     CONSTRAINT pk_job_instance PRIMARY KEY (id)
 );
 
+CREATE SEQUENCE IF NOT EXISTS file_sync_checkpoint_id_seq START WITH 10000;
+
+CREATE TABLE IF NOT EXISTS file_sync_checkpoint (
+    id BIGINT DEFAULT NEXT VALUE FOR file_sync_checkpoint_id_seq,
+    job_id BIGINT NOT NULL,
+    instance_id BIGINT NOT NULL,
+    file_path VARCHAR(1024) NOT NULL,
+    target_index INT NOT NULL DEFAULT 0,
+    target_conn_id BIGINT,
+    target_path VARCHAR(1024),
+    source_size BIGINT NOT NULL,
+    source_mtime BIGINT NOT NULL,
+    committed_bytes BIGINT NOT NULL,
+    status SMALLINT NOT NULL,
+    update_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_file_sync_checkpoint PRIMARY KEY (id)
+);
+CREATE INDEX IF NOT EXISTS idx_file_sync_checkpoint_job ON file_sync_checkpoint(job_id, file_path);
+
+CREATE SEQUENCE IF NOT EXISTS file_sync_file_id_seq START WITH 10000;
+
+CREATE TABLE IF NOT EXISTS file_sync_file (
+    id BIGINT DEFAULT NEXT VALUE FOR file_sync_file_id_seq,
+    job_id BIGINT NOT NULL,
+    instance_id BIGINT NOT NULL,
+    file_path VARCHAR(1024) NOT NULL,
+    target_index INT NOT NULL DEFAULT 0,
+    file_size BIGINT NOT NULL,
+    checksum VARCHAR(64),
+    status SMALLINT NOT NULL,
+    message VARCHAR(1024),
+    create_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_file_sync_file PRIMARY KEY (id)
+);
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_instance ON file_sync_file(instance_id);
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_job ON file_sync_file(job_id);
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_create_time ON file_sync_file(create_time);
+
 CREATE SEQUENCE IF NOT EXISTS connector_id_seq START WITH 10000;
 
 CREATE TABLE IF NOT EXISTS connector (
@@ -92,12 +92,58 @@ CREATE TABLE IF NOT EXISTS public.job_instance (
     write_qps double precision NULL,
     read_bytes int8 NULL,
     write_bytes int8 NULL,
+    raw_bytes int8 NULL,
     log_content text NULL,
     update_by int8 NOT NULL,
     update_time timestamp with time zone NOT NULL
 );
 ALTER SEQUENCE job_instance_id_seq OWNED BY job_instance.id;
 COMMENT ON COLUMN public.job_instance.status IS '0:waiting, 1:submitted, 2:running, 3:success, 4:failure, 5:canceled';
+COMMENT ON COLUMN public.job_instance.raw_bytes IS 'file sync bytes before compression or after decompression';
+
+CREATE SEQUENCE IF NOT EXISTS file_sync_checkpoint_id_seq START WITH 10000;
+CREATE TABLE IF NOT EXISTS public.file_sync_checkpoint (
+    id BIGINT PRIMARY KEY DEFAULT nextval('file_sync_checkpoint_id_seq'),
+    job_id int8 NOT NULL,
+    instance_id int8 NOT NULL,
+    file_path varchar(1024) NOT NULL,
+    target_index int4 NOT NULL DEFAULT 0,
+    target_conn_id int8 NULL,
+    target_path varchar(1024) NULL,
+    source_size int8 NOT NULL,
+    source_mtime int8 NOT NULL,
+    committed_bytes int8 NOT NULL,
+    status int2 NOT NULL,
+    update_time timestamp with time zone NOT NULL
+);
+ALTER SEQUENCE file_sync_checkpoint_id_seq OWNED BY file_sync_checkpoint.id;
+CREATE INDEX IF NOT EXISTS idx_file_sync_checkpoint_job ON public.file_sync_checkpoint(job_id, file_path);
+COMMENT ON COLUMN public.file_sync_checkpoint.file_path IS 'path relative to the job source path';
+COMMENT ON COLUMN public.file_sync_checkpoint.target_index IS 'index of the target in the targets of the job, 0 for the first one';
+COMMENT ON COLUMN public.file_sync_checkpoint.target_path IS 'path of the target, the checkpoint does not apply once the target at its index changed';
+COMMENT ON COLUMN public.file_sync_checkpoint.status IS '1:in_progress, 2:done';
+
+CREATE SEQUENCE IF NOT EXISTS file_sync_file_id_seq START WITH 10000;
+CREATE TABLE IF NOT EXISTS public.file_sync_file (
+    id BIGINT PRIMARY KEY DEFAULT nextval('file_sync_file_id_seq'),
+    job_id int8 NOT NULL,
+    instance_id int8 NOT NULL,
+    file_path varchar(1024) NOT NULL,
+    target_index int4 NOT NULL DEFAULT 0,
+    file_size int8 NOT NULL,
+    checksum varchar(64),
+    status int2 NOT NULL,
+    message varchar(1024),
+    create_time timestamp with time zone NOT NULL
+);
+ALTER SEQUENCE file_sync_file_id_seq OWNED BY file_sync_file.id;
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_instance ON public.file_sync_file(instance_id);
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_job ON public.file_sync_file(job_id);
+CREATE INDEX IF NOT EXISTS idx_file_sync_file_create_time ON public.file_sync_file(create_time);
+COMMENT ON COLUMN public.file_sync_file.file_path IS 'path relative to the job source path';
+COMMENT ON COLUMN public.file_sync_file.target_index IS 'index of the target in the targets of the job, 0 for the first one';
+COMMENT ON COLUMN public.file_sync_file.checksum IS 'CRC32C of the transferred bytes in hex';
+COMMENT ON COLUMN public.file_sync_file.status IS '1:success, 2:failed';
 
 CREATE SEQUENCE IF NOT EXISTS connector_id_seq START WITH 10000;
 CREATE TABLE IF NOT EXISTS public.connector (
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for BandwidthLimiter.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class BandwidthLimiterTest {
+
+    @Test
+    public void testReservationsShareTheRate() {
+        BandwidthLimiter limiter = new BandwidthLimiter(1000L);
+        long first = limiter.reserve(500L);
+        long second = limiter.reserve(500L);
+        // the second reservation waits for the debt of the first one
+        assertTrue(first > TimeUnit.MILLISECONDS.toNanos(400) && first <= TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(second > TimeUnit.MILLISECONDS.toNanos(900) && second <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testRateChangedAtRuntime() {
+        BandwidthLimiter limiter = new BandwidthLimiter(1000L);
+        assertTrue(limiter.reserve(10_000L) > 0);
+        limiter.setRate(0L);
+        assertEquals(0L, limiter.reserve(10_000L));
+        limiter.setRate(1_000_000L);
+        // the debt was forgiven with the limit removed
+        assertTrue(limiter.reserve(1000L) <= TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
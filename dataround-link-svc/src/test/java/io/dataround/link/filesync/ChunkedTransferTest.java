@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+
+/**
+ * Test class for ChunkedTransfer.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class ChunkedTransferTest {
+
+    @TempDir
+    Path baseDir;
+
+    private FileConnectorPool pool;
+    private ExecutorService executor;
+    private Param param;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new FileConnectorPool(10, 60000L, 1000L);
+        // a single worker makes the calling thread transfer the chunks the helper has not claimed
+        executor = Executors.newFixedThreadPool(1);
+        param = new Param();
+        param.setName(ConnectorNameConstants.LOCAL_FILE);
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    @Test
+    public void testPositionalChunks() throws Exception {
+        byte[] data = new byte[100_003];
+        new Random(7).nextBytes(data);
+        Path source = Files.write(baseDir.resolve("source.bin"), data);
+        Path target = baseDir.resolve("target.bin");
+        FileSyncContext context = new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.toString());
+        new ChunkedTransfer(context, pool, param, source.toString(), target.toString(), data.length, 4096L, 4)
+                .execute(executor);
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(data.length, context.getWriteBytes().sum());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileChecksum;
+
+/**
+ * Test class for DeltaTransfer.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class DeltaTransferTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    @TempDir
+    Path baseDir;
+
+    private FileConnectorPool pool;
+    private Param param;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new FileConnectorPool(10, 60000L, 1000L);
+        param = new Param();
+        param.setName(ConnectorNameConstants.LOCAL_FILE);
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testChangedBlocksWritten() throws Exception {
+        byte[] previous = new byte[BLOCK_SIZE * 10 + 100];
+        new Random(7).nextBytes(previous);
+        byte[] data = Arrays.copyOf(previous, previous.length + BLOCK_SIZE);
+        // one byte of the third block, the tail of the last partial block and one new block
+        data[BLOCK_SIZE * 2 + 5] ^= 1;
+        for (int i = previous.length; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path source = Files.write(baseDir.resolve("source.bin"), data);
+        Path target = Files.write(baseDir.resolve("target.bin"), previous);
+        FileSyncContext context = new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.toString());
+        List<Long> commits = new ArrayList<>();
+        DeltaTransfer delta = new DeltaTransfer(context, pool, param, source.toString(), target.toString(),
+                data.length, BLOCK_SIZE, Collections.singletonList(FileChecksum.of(FileChecksum.CRC32C)));
+        assertTrue(delta.execute(commits::add, BLOCK_SIZE * 4L));
+        assertArrayEquals(data, Files.readAllBytes(target));
+        // the third block, then the last partial block and the new bytes in blocks 11 and 12
+        assertEquals(BLOCK_SIZE + (data.length - BLOCK_SIZE * 10), context.getWriteBytes().sum());
+        assertEquals(data.length, context.getRawBytes().sum());
+        // the end of the file is recorded once the file is done
+        assertEquals(Arrays.asList(BLOCK_SIZE * 4L, BLOCK_SIZE * 8L), commits);
+        try (InputStream inputStream = Files.newInputStream(source)) {
+            assertEquals(FileChecksum.compute(inputStream, FileChecksum.CRC32C),
+                    delta.getChecksums().get(FileChecksum.CRC32C));
+        }
+    }
+
+    @Test
+    public void testUnchangedTargetTouched() throws Exception {
+        byte[] data = new byte[BLOCK_SIZE * 3];
+        new Random(7).nextBytes(data);
+        Path source = Files.write(baseDir.resolve("source.bin"), data);
+        Path target = Files.write(baseDir.resolve("target.bin"), data);
+        // the source was touched after the target was copied
+        Files.setLastModifiedTime(target, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(2_000_000L));
+        FileSyncContext context = new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.toString());
+        DeltaTransfer delta = new DeltaTransfer(context, pool, param, source.toString(), target.toString(),
+                data.length, BLOCK_SIZE, Collections.emptyList());
+        assertTrue(delta.execute(position -> { }, BLOCK_SIZE));
+        assertEquals(0L, context.getWriteBytes().sum());
+        assertArrayEquals(data, Files.readAllBytes(target));
+        // the next incremental listing finds the target up to date
+        assertTrue(Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(source)) >= 0);
+    }
+
+    @Test
+    public void testLongerTargetNotPatched() throws Exception {
+        byte[] data = new byte[BLOCK_SIZE * 2];
+        new Random(7).nextBytes(data);
+        Path source = Files.write(baseDir.resolve("source.bin"), data);
+        byte[] previous = Arrays.copyOf(data, data.length + 1);
+        Path target = Files.write(baseDir.resolve("target.bin"), previous);
+        FileSyncContext context = new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.toString());
+        DeltaTransfer delta = new DeltaTransfer(context, pool, param, source.toString(), target.toString(),
+                data.length, BLOCK_SIZE, Collections.emptyList());
+        assertFalse(delta.execute(position -> { }, BLOCK_SIZE));
+        assertArrayEquals(previous, Files.readAllBytes(target));
+        assertFalse(new DeltaTransfer(context, pool, param, source.toString(), baseDir.resolve("none.bin").toString(),
+                data.length, BLOCK_SIZE, Collections.emptyList()).execute(position -> { }, BLOCK_SIZE));
+    }
+}
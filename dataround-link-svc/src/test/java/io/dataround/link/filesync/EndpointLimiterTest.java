@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+
+/**
+ * Test class for EndpointLimiter.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class EndpointLimiterTest {
+
+    @Test
+    public void testSameEndpointTakesOnePermit() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(2);
+        Param param = param("sftp-host");
+        try (EndpointLimiter.Permit permit = limiter.acquire(param, param)) {
+            assertEquals(1, limiter.getAvailable(param));
+        }
+        assertEquals(2, limiter.getAvailable(param));
+    }
+
+    @Test
+    public void testOppositeDirectionsDoNotDeadlock() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(1);
+        Param a = param("a");
+        Param b = param("b");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        try {
+            for (int i = 0; i < 200; i++) {
+                boolean forward = i % 2 == 0;
+                executor.execute(() -> {
+                    try (EndpointLimiter.Permit permit = forward ? limiter.acquire(a, b) : limiter.acquire(b, a)) {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(1, maxRunning.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Param param(String host) {
+        Param param = new Param();
+        param.setName("SFTP");
+        param.setHost(host);
+        param.setConfig(new HashMap<>());
+        return param;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for FairFileSyncScheduler.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FairFileSyncSchedulerTest {
+
+    private ExecutorService executor;
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWeightedRoundRobin() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        FairFileSyncScheduler scheduler = new FairFileSyncScheduler(executor);
+        // hold the only worker until both lanes have queued their transfers
+        CountDownLatch queued = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                queued.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        FairFileSyncScheduler.Lane big = scheduler.openLane(2, 0);
+        FairFileSyncScheduler.Lane small = scheduler.openLane(1, 0);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(9);
+        for (int i = 1; i <= 6; i++) {
+            String name = "big" + i;
+            big.execute(() -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        for (int i = 1; i <= 3; i++) {
+            String name = "small" + i;
+            small.execute(() -> {
+                order.add(name);
+                done.countDown();
+            });
+        }
+        queued.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("big1", "big2", "small1", "big3", "big4", "small2", "big5", "big6", "small3"),
+                order);
+    }
+
+    @Test
+    public void testLaneConcurrencyLimit() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        FairFileSyncScheduler scheduler = new FairFileSyncScheduler(executor);
+        FairFileSyncScheduler.Lane lane = scheduler.openLane(1, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            lane.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testClosedLaneRejects() {
+        executor = Executors.newSingleThreadExecutor();
+        FairFileSyncScheduler.Lane lane = new FairFileSyncScheduler(executor).openLane(1, 0);
+        lane.close();
+        assertThrows(RejectedExecutionException.class, () -> lane.execute(() -> { }));
+    }
+}
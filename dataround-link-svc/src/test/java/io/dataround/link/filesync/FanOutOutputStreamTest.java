@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+
+/**
+ * Test class for FanOutOutputStream.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FanOutOutputStreamTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = FileSyncExecutors.newReaderExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadOnceWriteEveryTarget() throws Exception {
+        byte[] data = new byte[100_003];
+        new Random(11).nextBytes(data);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ByteArrayOutputStream third = new ByteArrayOutputStream();
+        Param param = new Param();
+        param.setConfig(new HashMap<>());
+        FileSyncContext context = new FileSyncContext(1L, param, 1L, param, "/source", "/target");
+        FanOutOutputStream out = new FanOutOutputStream(Arrays.asList(first, second, third), executor);
+        // the ring of buffers is reused for every target
+        new PipelinedCopier(executor, 4).copy(context, new ByteArrayInputStream(data), out, data.length, 0L, 4096, 3,
+                position -> { });
+        out.close();
+        assertArrayEquals(data, first.toByteArray());
+        assertArrayEquals(data, second.toByteArray());
+        assertArrayEquals(data, third.toByteArray());
+        assertEquals(data.length, context.getRawBytes().sum());
+    }
+
+    @Test
+    public void testFailedTargetLeftOut() throws Exception {
+        IOException failure = new IOException("disk full");
+        ByteArrayOutputStream good = new ByteArrayOutputStream();
+        OutputStream bad = new OutputStream() {
+            private int written = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 2) {
+                    throw failure;
+                }
+            }
+        };
+        FanOutOutputStream out = new FanOutOutputStream(Arrays.asList(bad, null, good), executor);
+        out.write(new byte[] {1, 2, 3, 4});
+        out.write(new byte[] {5, 6});
+        out.close();
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6}, good.toByteArray());
+        assertSame(failure, out.getFailure(0));
+        assertNull(out.getFailure(2));
+
+        // the stream fails once no target is left
+        FanOutOutputStream lost = new FanOutOutputStream(Arrays.asList(bad), executor);
+        assertThrows(IOException.class, () -> lost.write(new byte[] {1}));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * Test class for the file change watchers.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileChangeWatcherTest {
+
+    @TempDir
+    Path baseDir;
+
+    @Test
+    public void testLocalWatcher() throws Exception {
+        try (FileChangeWatcher watcher = new LocalFileWatcher(newContext(), "*.txt", true)) {
+            assertChanges(watcher);
+        }
+    }
+
+    @Test
+    public void testPollingWatcher() throws Exception {
+        // the local connector stands in for a remote one, the watcher only uses the connector api
+        try (FileChangeWatcher watcher = new PollingFileWatcher(newContext(), "*.txt", true)) {
+            assertChanges(watcher);
+        }
+    }
+
+    private void assertChanges(FileChangeWatcher watcher) throws Exception {
+        Files.write(baseDir.resolve("old.txt"), "old".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("old.txt"), pollPaths(watcher));
+        Files.createDirectories(baseDir.resolve("sub"));
+        Files.write(baseDir.resolve("sub/new.txt"), "new".getBytes(StandardCharsets.UTF_8));
+        Files.write(baseDir.resolve("sub/new.csv"), "new".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("sub" + File.separator + "new.txt"), pollPaths(watcher));
+        // reported once
+        assertEquals(0, watcher.poll(100L).size());
+    }
+
+    // a change is reported by the poll after the one seeing it
+    private List<String> pollPaths(FileChangeWatcher watcher) throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 20 && paths.isEmpty(); i++) {
+            for (FileInfo file : watcher.poll(100L)) {
+                paths.add(file.getPath());
+            }
+        }
+        return paths;
+    }
+
+    private FileSyncContext newContext() {
+        Param param = new Param();
+        param.setName(ConnectorNameConstants.LOCAL_FILE);
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+        return new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.resolve("target").toString());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.entity.enums.FileSyncCompressionEnum;
+
+/**
+ * Test class for FileCodec.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileCodecTest {
+
+    private ExecutorService readerExecutor;
+    private PipelinedCopier copier;
+    private Param param;
+
+    @BeforeEach
+    public void setUp() {
+        readerExecutor = FileSyncExecutors.newReaderExecutor();
+        copier = new PipelinedCopier(readerExecutor, 4);
+        param = new Param();
+        param.setConfig(new HashMap<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        readerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testTargetName() {
+        assertEquals("logs/a.log.gz", FileCodec.getTargetName(FileSyncCompressionEnum.GZIP, "logs/a.log"));
+        assertEquals("logs/a.log", FileCodec.getTargetName(FileSyncCompressionEnum.GUNZIP, "logs/a.log.GZ"));
+        assertEquals("a.log", FileCodec.getTargetName(FileSyncCompressionEnum.NONE, "a.log"));
+    }
+
+    @Test
+    public void testCompressAndDecompress() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.append("2026-10-18 12:00:00 INFO line ").append(i).append('\n');
+        }
+        byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+        FileSyncContext gzip = new FileSyncContext(1L, param, 1L, param, "/source", "/target");
+        byte[] compressed = transfer(gzip, FileSyncCompressionEnum.GZIP, data);
+        assertEquals(data.length, gzip.getReadBytes().sum());
+        assertEquals(data.length, gzip.getRawBytes().sum());
+        assertEquals(compressed.length, gzip.getWriteBytes().sum());
+        assertTrue(compressed.length < data.length / 5);
+
+        FileSyncContext gunzip = new FileSyncContext(2L, param, 1L, param, "/source", "/target");
+        assertArrayEquals(data, transfer(gunzip, FileSyncCompressionEnum.GUNZIP, compressed));
+        assertEquals(compressed.length, gunzip.getReadBytes().sum());
+        assertEquals(data.length, gunzip.getRawBytes().sum());
+        assertEquals(data.length, gunzip.getWriteBytes().sum());
+    }
+
+    private byte[] transfer(FileSyncContext context, FileSyncCompressionEnum compression, byte[] data)
+            throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        InputStream in = FileCodec.wrapSource(compression,
+                FileCodec.metered(new ByteArrayInputStream(data), context.getReadBytes()), 4096);
+        OutputStream out = FileCodec.wrapTarget(compression,
+                FileCodec.metered(target, context.getWriteBytes()), 4096);
+        copier.copy(context, in, out, data.length, 0L, 4096, 3, position -> { });
+        out.close();
+        return target.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileConnector;
+
+/**
+ * Test class for FileConnectorPool.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileConnectorPoolTest {
+
+    private FileConnectorPool pool;
+    private Param param;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new FileConnectorPool(2, 60000L, 100L);
+        param = new Param();
+        param.setName(ConnectorNameConstants.LOCAL_FILE);
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testReuseReturnedConnector() throws Exception {
+        FileConnector first;
+        try (FileConnectorPool.Lease lease = pool.borrow(param)) {
+            first = lease.get();
+        }
+        assertEquals(1, pool.getIdleCount(param));
+        try (FileConnectorPool.Lease lease = pool.borrow(param)) {
+            assertSame(first, lease.get());
+        }
+    }
+
+    @Test
+    public void testInvalidatedConnectorIsNotReused() throws Exception {
+        FileConnector first;
+        try (FileConnectorPool.Lease lease = pool.borrow(param)) {
+            first = lease.get();
+            lease.invalidate();
+        }
+        assertEquals(0, pool.getIdleCount(param));
+        try (FileConnectorPool.Lease lease = pool.borrow(param)) {
+            assertNotSame(first, lease.get());
+        }
+    }
+
+    @Test
+    public void testMaxSessionsPerEndpoint() throws Exception {
+        try (FileConnectorPool.Lease first = pool.borrow(param);
+                FileConnectorPool.Lease second = pool.borrow(param)) {
+            assertThrows(IllegalStateException.class, () -> pool.borrow(param));
+        }
+    }
+
+    @Test
+    public void testEvictIdle() throws Exception {
+        FileConnectorPool shortIdlePool = new FileConnectorPool(2, 0L, 100L);
+        try {
+            shortIdlePool.borrow(param).close();
+            Thread.sleep(5L);
+            shortIdlePool.evictIdle();
+            assertEquals(0, shortIdlePool.getIdleCount(param));
+            // the endpoint without sessions is dropped, one with a leased session is kept
+            assertEquals(0, shortIdlePool.getEndpointCount());
+            try (FileConnectorPool.Lease lease = shortIdlePool.borrow(param)) {
+                shortIdlePool.evictIdle();
+                assertEquals(1, shortIdlePool.getEndpointCount());
+            }
+        } finally {
+            shortIdlePool.close();
+        }
+    }
+}
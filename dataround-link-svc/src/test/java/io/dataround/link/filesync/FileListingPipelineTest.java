@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.common.utils.ConnectorNameConstants;
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * Test class for FileListingPipeline.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileListingPipelineTest {
+
+    @TempDir
+    Path baseDir;
+
+    private Param param;
+    private FileSyncContext context;
+
+    @BeforeEach
+    public void setUp() {
+        param = new Param();
+        param.setName(ConnectorNameConstants.LOCAL_FILE);
+        param.setType("File");
+        param.setConfig(new HashMap<>());
+        context = new FileSyncContext(1L, param, 1L, param, baseDir.toString(), baseDir.toString());
+    }
+
+    @Test
+    public void testListThroughSmallQueue() throws Exception {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            String name = "file" + i + ".txt";
+            Files.write(baseDir.resolve(name), new byte[i]);
+            if (i % 2 == 0) {
+                expected.add(name);
+            }
+        }
+        Set<String> taken = new HashSet<>();
+        // the lister has to wait for the consumer many times
+        try (FileListingPipeline listing = new FileListingPipeline(context, param, baseDir.toString(), "*.txt", false,
+                file -> file.getSize() % 2 == 0, 2)) {
+            listing.start();
+            FileInfo file;
+            while ((file = listing.next()) != null) {
+                taken.add(file.getPath());
+            }
+        }
+        assertEquals(expected, taken);
+    }
+
+    @Test
+    public void testLargestFirst() throws Exception {
+        int[] sizes = {3, 40, 7, 0, 25, 12};
+        for (int i = 0; i < sizes.length; i++) {
+            Files.write(baseDir.resolve("file" + i), new byte[sizes[i]]);
+        }
+        List<Long> taken = new ArrayList<>();
+        try (FileListingPipeline listing = new FileListingPipeline(context, param, baseDir.toString(), null, false,
+                file -> true, 100, true)) {
+            listing.start();
+            FileInfo file;
+            while ((file = listing.next()) != null) {
+                taken.add(file.getSize());
+            }
+        }
+        assertEquals(Arrays.asList(40L, 25L, 12L, 7L, 3L, 0L), taken);
+    }
+
+    @Test
+    public void testListingFailure() {
+        try (FileListingPipeline listing = new FileListingPipeline(context, param,
+                baseDir.resolve("missing").toString(), null, false, file -> true, 2)) {
+            listing.start();
+            assertThrows(RuntimeException.class, listing::next);
+        }
+    }
+
+    @Test
+    public void testCancelStopsListing() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Files.write(baseDir.resolve("file" + i), new byte[0]);
+        }
+        try (FileListingPipeline listing = new FileListingPipeline(context, param, baseDir.toString(), null, false,
+                file -> true, 1)) {
+            listing.start();
+            listing.next();
+            context.getCancelFlag().set(true);
+            assertNull(listing.next());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AccessDeniedException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for FileRetryPolicy.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileRetryPolicyTest {
+
+    @Test
+    public void testRetryableErrors() {
+        FileRetryPolicy policy = new FileRetryPolicy(3, 1000L, 30000L);
+        // connectors wrap their errors into runtime exceptions
+        assertTrue(policy.shouldRetry(new RuntimeException("read failed", new SocketTimeoutException()), 1));
+        assertTrue(policy.shouldRetry(new RuntimeException(new IOException("connection lost")), 2));
+        assertFalse(policy.shouldRetry(new IOException("reset"), 3));
+        assertFalse(policy.shouldRetry(new RuntimeException(new FileNotFoundException("a.log")), 1));
+        assertFalse(policy.shouldRetry(new RuntimeException(new AccessDeniedException(null, null, "denied")), 1));
+        assertFalse(policy.shouldRetry(new InterruptedException(), 1));
+        assertFalse(policy.shouldRetry(new IllegalStateException("bug"), 1));
+    }
+
+    @Test
+    public void testBackoff() {
+        FileRetryPolicy policy = new FileRetryPolicy(10, 1000L, 30000L);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getBackoffMillis(1);
+            assertTrue(first >= 500L && first <= 1000L, String.valueOf(first));
+            long third = policy.getBackoffMillis(3);
+            assertTrue(third >= 2000L && third <= 4000L, String.valueOf(third));
+            long capped = policy.getBackoffMillis(40);
+            assertTrue(capped >= 15000L && capped <= 30000L, String.valueOf(capped));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+import io.dataround.link.connector.FileInfo;
+import io.dataround.link.entity.FileSyncCheckpoint;
+import io.dataround.link.entity.enums.FileSyncCheckpointStatusEnum;
+import io.dataround.link.service.FileSyncCheckpointService;
+
+/**
+ * Test class for FileSyncCheckpointManager.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileSyncCheckpointManagerTest {
+
+    @Test
+    public void testResumeMatchingCheckpoints() {
+        FileSyncCheckpointService service = mock(FileSyncCheckpointService.class);
+        when(service.listByJobId(eq(1L), isNull(), anyInt())).thenReturn(Arrays.asList(
+                checkpoint(10L, "done.txt", 100L, 1000L, 100L, FileSyncCheckpointStatusEnum.DONE),
+                checkpoint(11L, "partial.txt", 100L, 1000L, 40L, FileSyncCheckpointStatusEnum.IN_PROGRESS)));
+        FileSyncCheckpointManager manager = new FileSyncCheckpointManager(1L, 2L, targets(), service);
+
+        assertTrue(manager.isDone(0, "done.txt", new FileInfo("done.txt", 100L, 1000L, false)));
+        // a changed source is transferred again
+        assertFalse(manager.isDone(0, "done.txt", new FileInfo("done.txt", 100L, 2000L, false)));
+        assertEquals(40L, manager.getCommittedBytes(0, "partial.txt", new FileInfo("partial.txt", 100L, 1000L, false)));
+        assertEquals(0L, manager.getCommittedBytes(0, "partial.txt", new FileInfo("partial.txt", 120L, 1000L, false)));
+        assertEquals(0L, manager.getCommittedBytes(0, "new.txt", new FileInfo("new.txt", 100L, 1000L, false)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushOnlyChangedCheckpoints() {
+        FileSyncCheckpointService service = mock(FileSyncCheckpointService.class);
+        List<FileSyncCheckpoint> inserted = new ArrayList<>();
+        when(service.saveBatch(anyCollection())).thenAnswer(invocation -> {
+            Collection<FileSyncCheckpoint> batch = invocation.getArgument(0);
+            for (FileSyncCheckpoint checkpoint : batch) {
+                checkpoint.setId(100L + inserted.size());
+                inserted.add(checkpoint);
+            }
+            return true;
+        });
+        FileSyncCheckpointManager manager = new FileSyncCheckpointManager(1L, 2L, targets(), service);
+        FileInfo info = new FileInfo("new.txt", 100L, 1000L, false);
+        manager.start(0, "new.txt", info, 0L);
+        manager.commit(0, "new.txt", 50L);
+        manager.flush();
+        assertEquals(1, inserted.size());
+        assertEquals(50L, inserted.get(0).getCommittedBytes());
+        verify(service, never()).updateBatchById(anyCollection());
+
+        // the generated id is kept, the next flush updates the row
+        manager.done(0, "new.txt");
+        manager.flush();
+        assertEquals(1, inserted.size());
+        verify(service).updateBatchById(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLookupsStayInMemory() {
+        FileSyncCheckpointService service = mock(FileSyncCheckpointService.class);
+        when(service.saveBatch(anyCollection())).thenAnswer(invocation -> {
+            Collection<FileSyncCheckpoint> batch = invocation.getArgument(0);
+            batch.forEach(checkpoint -> checkpoint.setId(100L));
+            return true;
+        });
+        FileSyncCheckpointManager manager = new FileSyncCheckpointManager(1L, 2L, targets(), service);
+        // the stored checkpoints are read once, by page
+        verify(service).listByJobId(eq(1L), isNull(), anyInt());
+        FileInfo info = new FileInfo("a.txt", 100L, 1000L, false);
+        assertFalse(manager.isDone(0, "a.txt", info));
+
+        manager.start(0, "a.txt", info, 0L);
+        manager.done(0, "a.txt");
+        manager.flush();
+        // kept once written, the next lookup needs no query
+        assertTrue(manager.isDone(0, "a.txt", info));
+        verify(service).listByJobId(eq(1L), isNull(), anyInt());
+
+        // a file started again updates its stored row
+        manager.start(0, "a.txt", new FileInfo("a.txt", 120L, 2000L, false), 0L);
+        manager.done(0, "a.txt");
+        manager.flush();
+        verify(service).saveBatch(anyCollection());
+        verify(service).updateBatchById(anyCollection());
+
+        // the pruned checkpoints leave the memory with their rows
+        manager.removeDoneBefore(new Date(System.currentTimeMillis() + 1000L));
+        assertFalse(manager.isDone(0, "a.txt", new FileInfo("a.txt", 120L, 2000L, false)));
+    }
+
+    @Test
+    public void testChangedTargetIgnoresCheckpoints() {
+        FileSyncCheckpointService service = mock(FileSyncCheckpointService.class);
+        FileSyncCheckpoint moved = checkpoint(10L, "done.txt", 100L, 1000L, 100L, FileSyncCheckpointStatusEnum.DONE);
+        moved.setTargetPath("/old-target");
+        FileSyncCheckpoint otherConn = checkpoint(11L, "partial.txt", 100L, 1000L, 40L,
+                FileSyncCheckpointStatusEnum.IN_PROGRESS);
+        otherConn.setTargetConnId(6L);
+        when(service.listByJobId(eq(1L), isNull(), anyInt())).thenReturn(Arrays.asList(moved, otherConn));
+        FileSyncCheckpointManager manager = new FileSyncCheckpointManager(1L, 2L, targets(), service);
+
+        // the target at the index is not the one the checkpoints were written for
+        assertFalse(manager.isDone(0, "done.txt", new FileInfo("done.txt", 100L, 1000L, false)));
+        assertEquals(0L, manager.getCommittedBytes(0, "partial.txt",
+                new FileInfo("partial.txt", 100L, 1000L, false)));
+
+        // started again, the row records the current target
+        manager.start(0, "done.txt", new FileInfo("done.txt", 100L, 1000L, false), 0L);
+        assertEquals(5L, moved.getTargetConnId());
+        assertEquals("/target", moved.getTargetPath());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTargetsHaveOwnCheckpoints() {
+        FileSyncCheckpointService service = mock(FileSyncCheckpointService.class);
+        List<FileSyncCheckpoint> inserted = new ArrayList<>();
+        when(service.saveBatch(anyCollection())).thenAnswer(invocation -> {
+            inserted.addAll((Collection<FileSyncCheckpoint>) invocation.getArgument(0));
+            return true;
+        });
+        Param param = new Param();
+        FileSyncContext context = new FileSyncContext(2L, param, 5L, param, "/source", "/target");
+        context.addTarget(7L, param, "/backup");
+        FileSyncCheckpointManager manager = new FileSyncCheckpointManager(1L, 2L, context.getTargets(), service);
+        FileInfo info = new FileInfo("a.txt", 100L, 1000L, false);
+        manager.start(0, "a.txt", info, 0L);
+        manager.start(1, "a.txt", info, 0L);
+        manager.commit(1, "a.txt", 30L);
+        manager.done(0, "a.txt");
+
+        // the file is done on the first target and still in progress on the second one
+        assertTrue(manager.isDone(0, "a.txt", info));
+        assertFalse(manager.isDone(1, "a.txt", info));
+        assertEquals(0L, manager.getCommittedBytes(0, "a.txt", info));
+        assertEquals(30L, manager.getCommittedBytes(1, "a.txt", info));
+
+        manager.flush();
+        assertEquals(2, inserted.size());
+        for (FileSyncCheckpoint checkpoint : inserted) {
+            FileSyncContext.Target target = context.getTargets().get(checkpoint.getTargetIndex());
+            assertEquals(target.getConnId(), checkpoint.getTargetConnId());
+            assertEquals(target.getPath(), checkpoint.getTargetPath());
+        }
+    }
+
+    private List<FileSyncContext.Target> targets() {
+        Param param = new Param();
+        return new FileSyncContext(2L, param, 5L, param, "/source", "/target").getTargets();
+    }
+
+    private FileSyncCheckpoint checkpoint(Long id, String file, long size, long mtime, long committed,
+            FileSyncCheckpointStatusEnum status) {
+        FileSyncCheckpoint checkpoint = new FileSyncCheckpoint();
+        checkpoint.setId(id);
+        checkpoint.setJobId(1L);
+        checkpoint.setInstanceId(1L);
+        checkpoint.setFilePath(file);
+        checkpoint.setTargetIndex(0);
+        checkpoint.setTargetConnId(5L);
+        checkpoint.setTargetPath("/target");
+        checkpoint.setSourceSize(size);
+        checkpoint.setSourceMtime(mtime);
+        checkpoint.setCommittedBytes(committed);
+        checkpoint.setStatus(status.getCode());
+        return checkpoint;
+    }
+}
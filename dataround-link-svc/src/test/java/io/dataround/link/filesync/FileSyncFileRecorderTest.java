@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.entity.FileSyncFile;
+import io.dataround.link.entity.enums.FileSyncFileStatusEnum;
+import io.dataround.link.service.FileSyncFileService;
+
+/**
+ * Test class for FileSyncFileRecorder.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileSyncFileRecorderTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTargetsHaveOwnRecords() {
+        FileSyncFileService service = mock(FileSyncFileService.class);
+        List<FileSyncFile> inserted = new ArrayList<>();
+        when(service.saveBatch(anyCollection())).thenAnswer(invocation -> {
+            inserted.addAll((Collection<FileSyncFile>) invocation.getArgument(0));
+            return true;
+        });
+        FileSyncFileRecorder recorder = new FileSyncFileRecorder(1L, 2L, service);
+        // the same file succeeds on the first target and fails on the second one
+        recorder.success(0, "a.txt", 100L, "0000abcd");
+        recorder.failed(1, "a.txt", 100L, "disk full");
+        recorder.flush();
+
+        assertEquals(2, inserted.size());
+        FileSyncFile first = inserted.get(0);
+        assertEquals(0, first.getTargetIndex());
+        assertEquals(FileSyncFileStatusEnum.SUCCESS.getCode(), first.getStatus());
+        assertEquals("0000abcd", first.getChecksum());
+        FileSyncFile second = inserted.get(1);
+        assertEquals(1, second.getTargetIndex());
+        assertEquals(FileSyncFileStatusEnum.FAILED.getCode(), second.getStatus());
+        assertNull(second.getChecksum());
+        assertEquals("disk full", second.getMessage());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+
+/**
+ * Test class for FileTransferWindow.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class FileTransferWindowTest {
+
+    private ExecutorService executor;
+    private FileSyncContext context;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        Param param = new Param();
+        param.setConfig(new HashMap<>());
+        context = new FileSyncContext(1L, param, 1L, param, "/source", "/target");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWindowBoundsTasksInFlight() throws Exception {
+        FileTransferWindow window = new FileTransferWindow(context, executor, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(window.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                running.decrementAndGet();
+                completed.incrementAndGet();
+                return null;
+            }));
+            assertTrue(window.getInFlightCount() <= 3);
+        }
+        assertNull(window.await());
+        assertEquals(200, completed.get());
+        assertTrue(maxRunning.get() <= 3);
+        assertEquals(0, window.getInFlightCount());
+    }
+
+    @Test
+    public void testFailureStopsSubmission() throws Exception {
+        FileTransferWindow window = new FileTransferWindow(context, executor, 1);
+        assertTrue(window.submit(() -> {
+            throw new IOException("broken file");
+        }));
+        // the next submission waits for the failed transfer, then is refused
+        assertFalse(window.submit(() -> null));
+        assertTrue(window.await() instanceof IOException);
+    }
+
+    @Test
+    public void testCancelInFlight() throws Exception {
+        FileTransferWindow window = new FileTransferWindow(context, executor, 2);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            window.submit(() -> {
+                started.countDown();
+                Thread.sleep(60000L);
+                return null;
+            });
+        }
+        started.await();
+        context.getCancelFlag().set(true);
+        assertEquals(2, window.cancel());
+        assertFalse(window.submit(() -> null));
+        window.await();
+        assertEquals(0, window.getInFlightCount());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.connector.FileInfo;
+
+/**
+ * Test class for IncrementalFileFilter.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class IncrementalFileFilterTest {
+
+    @Test
+    public void testChangedFiles() {
+        List<FileInfo> sourceFiles = Arrays.asList(
+                new FileInfo("same.txt", 10L, 1000L, false),
+                new FileInfo("resized.txt", 10L, 1000L, false),
+                new FileInfo("modified.txt", 10L, 3000L, false),
+                new FileInfo("sub/new.txt", 10L, 1000L, false),
+                new FileInfo("sub/copied.txt", 10L, 1000L, false));
+        List<FileInfo> targetFiles = Arrays.asList(
+                new FileInfo("same.txt", 10L, 2000L, false),
+                new FileInfo("resized.txt", 8L, 2000L, false),
+                new FileInfo("modified.txt", 10L, 2000L, false),
+                new FileInfo("sub\\copied.txt", 10L, 1000L, false));
+        List<String> changed = sourceFiles.stream().filter(new IncrementalFileFilter(targetFiles))
+                .map(FileInfo::getPath).collect(Collectors.toList());
+        assertEquals(Arrays.asList("resized.txt", "modified.txt", "sub/new.txt"), changed);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025 yuehan124@gmail.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.dataround.link.filesync;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.dataround.link.common.connector.Param;
+
+/**
+ * Test class for PipelinedCopier.
+ *
+ * @author yuehan124@gmail.com
+ * @date 2026-10-18
+ */
+public class PipelinedCopierTest {
+
+    private ExecutorService readerExecutor;
+    private PipelinedCopier copier;
+    private FileSyncContext context;
+
+    @BeforeEach
+    public void setUp() {
+        readerExecutor = FileSyncExecutors.newReaderExecutor();
+        copier = new PipelinedCopier(readerExecutor, 4);
+        Param param = new Param();
+        param.setConfig(new HashMap<>());
+        context = new FileSyncContext(1L, param, 1L, param, "/source", "/target");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        readerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        byte[] data = new byte[100_003];
+        new Random(7).nextBytes(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicLong lastPosition = new AtomicLong();
+        long position = copier.copy(context, new ByteArrayInputStream(data), out, data.length, 10L, 4096, 3,
+                lastPosition::set);
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(10L + data.length, position);
+        assertEquals(position, lastPosition.get());
+        // the copier counts the raw bytes, the connector streams count what they move
+        assertEquals(data.length, context.getRawBytes().sum());
+    }
+
+    @Test
+    public void testReaderFailure() {
+        InputStream failing = new InputStream() {
+            private int count = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (++count > 10_000) {
+                    throw new IOException("connection reset");
+                }
+                return 1;
+            }
+        };
+        IOException e = assertThrows(IOException.class, () -> copier.copy(context, failing,
+                new ByteArrayOutputStream(), 100_000L, 0L, 1024, 4, position -> { }));
+        assertEquals("connection reset", e.getMessage());
+    }
+}
@@ -19,8 +19,8 @@
  * @author: yuehan124@gmail.com
  * @date: 2026-06-05
  */
-import { SaveOutlined } from "@ant-design/icons";
-import { Button, DatePicker, DatePickerProps, Form, Input, message, Radio, RadioChangeEvent, Select, Space, Switch, Tabs } from "antd";
+import { MinusCircleOutlined, PlusOutlined, SaveOutlined } from "@ant-design/icons";
+import { Button, DatePicker, DatePickerProps, Form, Input, InputNumber, message, Radio, RadioChangeEvent, Select, Space, Switch, Tabs } from "antd";
 import dayjs, { Dayjs } from "dayjs";
 import { FC, memo, useEffect, useState } from "react";
 import { useTranslation } from 'react-i18next';
@@ -117,6 +117,7 @@ const FileSyncCreate: FC<IProps> = () => {
         onFinish={handleSave}
         initialValues={{
           includeSubdirectories: true,
+          priority: 1,
           enabled: true
         }}
       >
@@ -152,6 +153,18 @@ const FileSyncCreate: FC<IProps> = () => {
         >
           <Input placeholder={t('fileSync.create.placeholder.filePattern')} />
         </Form.Item>
+        <Form.Item
+          name="compression"
+          label={t('fileSync.create.form.compression')}
+          tooltip={t('fileSync.create.tooltip.compression')}
+          initialValue={0}
+        >
+          <Select>
+            <Option value={0}>{t('fileSync.create.compression.none')}</Option>
+            <Option value={1}>{t('fileSync.create.compression.gzip')}</Option>
+            <Option value={2}>{t('fileSync.create.compression.gunzip')}</Option>
+          </Select>
+        </Form.Item>
         <Form.Item
           name="includeSubdirectories"
           label={t('fileSync.create.form.includeSubdirectories')}
@@ -185,6 +198,95 @@ const FileSyncCreate: FC<IProps> = () => {
         >
           <Input placeholder={t('fileSync.create.placeholder.targetPath')} />
         </Form.Item>
+        <Form.Item
+          label={t('fileSync.create.form.extraTargets')}
+          tooltip={t('fileSync.create.tooltip.extraTargets')}
+        >
+          <Form.List name="extraTargets">
+            {(fields, { add, remove }) => (
+              <>
+                {fields.map(({ key, name }) => (
+                  <Space key={key} align="baseline">
+                    <Form.Item
+                      name={[name, 'targetConnId']}
+                      rules={[{ required: true, message: t('fileSync.create.message.targetConnectionRequired') }]}
+                    >
+                      <Select
+                        style={{ width: 240 }}
+                        placeholder={t('fileSync.create.placeholder.selectTargetConnection')}
+                        showSearch
+                        filterOption={(input, option) =>
+                          (option?.children as unknown as string)?.toLowerCase().includes(input.toLowerCase())
+                        }
+                      >
+                        {(form.getFieldValue('targetConnectionOptions') || []).map((item: any) => (
+                          <Option key={item.value} value={item.value}>{item.label}</Option>
+                        ))}
+                      </Select>
+                    </Form.Item>
+                    <Form.Item
+                      name={[name, 'targetPath']}
+                      rules={[{ required: true, message: t('fileSync.create.message.targetPathRequired') }]}
+                    >
+                      <Input style={{ width: 240 }} placeholder={t('fileSync.create.placeholder.targetPath')} />
+                    </Form.Item>
+                    <MinusCircleOutlined onClick={() => remove(name)} />
+                  </Space>
+                ))}
+                <Button type="dashed" onClick={() => add()} icon={<PlusOutlined />}>
+                  {t('fileSync.create.button.addTarget')}
+                </Button>
+              </>
+            )}
+          </Form.List>
+        </Form.Item>
+        <Form.Item
+          name="incremental"
+          label={t('fileSync.create.form.incremental')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
+        <Form.Item
+          name="verifyChecksum"
+          label={t('fileSync.create.form.verifyChecksum')}
+          tooltip={t('fileSync.create.tooltip.verifyChecksum')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
+        <Form.Item
+          name="atomicWrite"
+          label={t('fileSync.create.form.atomicWrite')}
+          tooltip={t('fileSync.create.tooltip.atomicWrite')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
+        <Form.Item
+          name="deltaTransfer"
+          label={t('fileSync.create.form.deltaTransfer')}
+          tooltip={t('fileSync.create.tooltip.deltaTransfer')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
+        <Form.Item
+          name="largestFirst"
+          label={t('fileSync.create.form.largestFirst')}
+          tooltip={t('fileSync.create.tooltip.largestFirst')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
+        <Form.Item
+          name="continuous"
+          label={t('fileSync.create.form.continuous')}
+          tooltip={t('fileSync.create.tooltip.continuous')}
+          valuePropName="checked"
+        >
+          <Switch />
+        </Form.Item>
 
         <Tabs defaultActiveKey="tabList" items={[{ key: "tabJob", label: t('fileSync.create.jobConfig') }]} />
         <Form.Item
@@ -202,6 +304,22 @@ const FileSyncCreate: FC<IProps> = () => {
           <Input.TextArea placeholder={t('job.edit.save.placeholder.description')} />
         </Form.Item>
 
+        <Form.Item
+          name="priority"
+          label={t('fileSync.create.form.priority')}
+          tooltip={t('fileSync.create.tooltip.priority')}
+        >
+          <InputNumber min={1} max={10} precision={0} />
+        </Form.Item>
+
+        <Form.Item
+          name="bandwidthLimitMb"
+          label={t('fileSync.create.form.bandwidthLimitMb')}
+          tooltip={t('fileSync.create.tooltip.bandwidthLimitMb')}
+        >
+          <InputNumber min={0} precision={0} addonAfter="MB/s" />
+        </Form.Item>
+
         <Form.Item
           name="scheduleType"
           label={t('job.edit.save.form.scheduleType')}
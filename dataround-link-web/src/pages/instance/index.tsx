@@ -61,6 +61,7 @@ interface DataType {
   writeQps: string;
   readBytes: string;
   writeBytes: string;
+  rawBytes: string;
   status: number;
   logContent: string;
   startTime: string;
@@ -126,6 +127,11 @@ const S: FC<IProps> = () => {
       dataIndex: "writeBytes",
       key: "writeBytes",
     },
+    {
+      title: t('instance.table.rawBytes'),
+      dataIndex: "rawBytes",
+      key: "rawBytes",
+    },
     {
       title: t('instance.table.status'),
       key: "status",
@@ -240,6 +246,7 @@ const S: FC<IProps> = () => {
         writeQps: parseFloat(records[i].writeQps).toFixed(2),
         readBytes: records[i].readBytes,
         writeBytes: records[i].writeBytes,
+        rawBytes: records[i].rawBytes,
         status: records[i].status,
         logContent: records[i].logContent,
         startTime: records[i].startTime,